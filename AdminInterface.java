@@ -1,167 +1,320 @@
-import javax.swing.*;
-import javax.swing.table.*;
-import java.awt.*;
-import java.awt.event.*;
-
-public class AdminInterface extends JFrame {
-    private JButton addBookButton;
-    private JButton deleteBookButton;
-    private JButton editBookButton;
-    private JTable generalTable;
-    private DefaultTableModel tableModel;
-    private GeneralDatabase generalDatabase;
-
-    public AdminInterface(GeneralDatabase generalDatabase) {
-        this.generalDatabase = generalDatabase;
-        setTitle("Admin Interface");
-        setSize(800, 600);
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        setLayout(new BorderLayout());
-
-        // Table model initialization with uneditable cells
-        tableModel = new DefaultTableModel(new Object[]{"Title", "Author"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-
-        generalTable = new JTable(tableModel);
-        generalTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        generalTable.setRowSelectionAllowed(true);
-
-        // Preventing key-based deletion or editing
-        generalTable.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyPressed(KeyEvent e) {
-                if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE || e.getKeyCode() == KeyEvent.VK_DELETE) {
-                    e.consume(); // Prevent deletion using keyboard
-                }
-            }
-        });
-
-        populateTable(); // Populate the table with initial data
-
-        // Buttons initialization and listeners
-        addBookButton = new JButton("Add Book");
-        addBookButton.addActionListener(e -> addBook()); // Set listener
-
-        deleteBookButton = new JButton("Delete Book");
-        deleteBookButton.addActionListener(e -> deleteBook()); // Set listener
-
-        editBookButton = new JButton("Edit Book");
-        editBookButton.addActionListener(e -> editBook()); // Set listener
-
-        JPanel buttonPanel = new JPanel();
-        buttonPanel.add(addBookButton);
-        buttonPanel.add(deleteBookButton);
-        buttonPanel.add(editBookButton);
-
-        add(new JScrollPane(generalTable), BorderLayout.CENTER); // Table with scroll pane
-        add(buttonPanel, BorderLayout.SOUTH); // Buttons panel at the bottom
-
-        setLocationRelativeTo(null); // Center the window
-        setVisible(true); // Display the interface
-    }
-
-    private void populateTable() {
-        tableModel.setRowCount(0); // Clear existing rows
-        for (GeneralBook book : generalDatabase.getBooks()) {
-            tableModel.addRow(new Object[]{
-                book.getTitle(),
-                book.getAuthor()
-            });
-        }
-    }
-
-    private void addBook() {
-        JTextField titleField = new JTextField(15);
-        JTextField authorField = new JTextField(15);
-
-        JPanel inputPanel = new JPanel();
-        inputPanel.add(new JLabel("Title:"));
-        inputPanel.add(titleField);
-        inputPanel.add(new JLabel("Author:"));
-        inputPanel.add(authorField);
-
-        int result = JOptionPane.showConfirmDialog(this, inputPanel, "Add Book", JOptionPane.OK_CANCEL_OPTION);
-
-        if (result == JOptionPane.OK_OPTION) {
-            String title = titleField.getText();
-            String author = authorField.getText();
-
-            if (title.isEmpty() || author.isEmpty()) {
-                JOptionPane.showMessageDialog(this, "Both title and author fields must be filled.");
-                return; // Do not add empty fields
-            }
-
-            GeneralBook newBook = new GeneralBook(title, author);
-            generalDatabase.addBook(newBook); // Use a new method to add and save
-            populateTable(); // Refresh the table
-        }
-    }
-
-    private void deleteBook() {
-        int selectedRow = generalTable.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(this, "Please select a book to delete.");
-            return;
-        }
-
-        String title = (String) tableModel.getValueAt(selectedRow, 0);
-
-        int confirmDelete = JOptionPane.showConfirmDialog(this, 
-            "Are you sure you want to delete \"" + title + "\"?", 
-            "Confirm Deletion", 
-            JOptionPane.YES_NO_OPTION);
-
-        if (confirmDelete == JOptionPane.YES_OPTION) {
-            boolean isDeleted = generalDatabase.removeBookByTitle(title); // Use a new method to remove and save
-            if (isDeleted) {
-                populateTable(); // Refresh the table
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to delete the book."); // Handle failure
-            }
-        }
-    }
-
-    private void editBook() {
-        int selectedRow = generalTable.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(this, "Please select a book to edit.");
-            return;
-        }
-
-        String originalTitle = (String) generalTable.getValueAt(selectedRow, 0);
-
-        GeneralBook bookToEdit = generalDatabase.getBooks()
-            .stream()
-            .filter(book -> book.getTitle().equals(originalTitle))
-            .findFirst()
-            .orElse(null);
-
-        if (bookToEdit == null) {
-            JOptionPane.showMessageDialog(this, "Book not found.");
-            return; // If the book is not found, exit
-        }
-
-        JTextField titleField = new JTextField(bookToEdit.getTitle(), 15);
-        JTextField authorField = new JTextField(bookToEdit.getAuthor(), 15);
-
-        JPanel inputPanel = new JPanel();
-        inputPanel.add(new JLabel("Title:"));
-        inputPanel.add(titleField);
-        inputPanel.add(new JLabel("Author:"));
-        inputPanel.add(authorField);
-
-        int result = JOptionPane.showConfirmDialog(this, inputPanel, "Edit Book", JOptionPane.OK_CANCEL_OPTION);
-
-        if (result == JOptionPane.OK_OPTION) {
-            bookToEdit.setTitle(titleField.getText());
-            bookToEdit.setAuthor(authorField.getText());
-
-            generalDatabase.saveToCSV(); // Save changes
-            populateTable(); // Refresh the table
-        }
-    }
-}
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AdminInterface extends JFrame {
+    private JButton addBookButton;
+    private JButton deleteBookButton;
+    private JButton editBookButton;
+    private JButton setAuthorButton;
+    private JButton replaceButton;
+    private JButton importButton;
+    private JButton usersButton;
+    private JTable generalTable;
+    private CatalogTableModel tableModel;
+    private GeneralDatabase generalDatabase;
+    private static final int SUGGESTION_LIMIT = 8;
+
+    public AdminInterface(GeneralDatabase generalDatabase) {
+        this.generalDatabase = generalDatabase;
+        setTitle("Admin Interface");
+        setSize(800, 600);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        // Table model reading straight from the catalog, cells are uneditable
+        tableModel = new CatalogTableModel(generalDatabase::getBooks, false);
+
+        generalTable = new JTable(tableModel);
+        generalTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        generalTable.setRowSelectionAllowed(true);
+
+        // Preventing key-based deletion or editing
+        generalTable.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE || e.getKeyCode() == KeyEvent.VK_DELETE) {
+                    e.consume(); // Prevent deletion using keyboard
+                }
+            }
+        });
+
+        populateTable(); // Populate the table with initial data
+        generalDatabase.prepareCompletions(); // For the title and author fields of the dialogs
+
+        // Buttons initialization and listeners
+        addBookButton = new JButton("Add Book");
+        addBookButton.addActionListener(e -> addBook()); // Set listener
+
+        deleteBookButton = new JButton("Delete Book");
+        deleteBookButton.addActionListener(e -> deleteBook()); // Set listener
+
+        editBookButton = new JButton("Edit Book");
+        editBookButton.addActionListener(e -> editBook()); // Set listener
+
+        setAuthorButton = new JButton("Set Author");
+        setAuthorButton.addActionListener(e -> reassignAuthor()); // Applies to every selected row
+
+        replaceButton = new JButton("Find/Replace Titles");
+        replaceButton.addActionListener(e -> replaceInTitles()); // Applies to every selected row
+
+        importButton = new JButton("Import CSV");
+        importButton.addActionListener(e -> importCsv()); // Bulk add from a reading list
+
+        usersButton = new JButton("Users");
+        usersButton.addActionListener(e -> new UserListFrame(UserRegistry.getInstance())); // Paged list of accounts
+
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(addBookButton);
+        buttonPanel.add(deleteBookButton);
+        buttonPanel.add(editBookButton);
+        buttonPanel.add(setAuthorButton);
+        buttonPanel.add(replaceButton);
+        buttonPanel.add(importButton);
+        buttonPanel.add(usersButton);
+
+        add(new JScrollPane(generalTable), BorderLayout.CENTER); // Table with scroll pane
+        add(buttonPanel, BorderLayout.SOUTH); // Buttons panel at the bottom
+
+        setLocationRelativeTo(null); // Center the window
+        setVisible(true); // Display the interface
+    }
+
+    private void populateTable() {
+        LibraryEvents.TableRefresh event = new LibraryEvents.TableRefresh();
+        event.begin();
+        tableModel.refresh(); // Rows are read lazily from the catalog, only the row count changes
+        event.end();
+        if (event.shouldCommit()) {
+            event.table = "Admin catalog";
+            event.rows = tableModel.getRowCount();
+            event.commit();
+        }
+    }
+
+    private void addBook() {
+        JTextField titleField = new JTextField(15);
+        JTextField authorField = new JTextField(15);
+        // Suggest existing titles (to spot duplicates) and authors (to keep spellings consistent)
+        AutoCompleteSupport.install(titleField, prefix -> generalDatabase.suggestTitles(prefix, SUGGESTION_LIMIT));
+        AutoCompleteSupport.install(authorField, prefix -> generalDatabase.suggestAuthors(prefix, SUGGESTION_LIMIT));
+
+        JPanel inputPanel = new JPanel();
+        inputPanel.add(new JLabel("Title:"));
+        inputPanel.add(titleField);
+        inputPanel.add(new JLabel("Author:"));
+        inputPanel.add(authorField);
+
+        int result = JOptionPane.showConfirmDialog(this, inputPanel, "Add Book", JOptionPane.OK_CANCEL_OPTION);
+
+        if (result == JOptionPane.OK_OPTION) {
+            String title = titleField.getText();
+            String author = authorField.getText();
+
+            if (title.isEmpty() || author.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Both title and author fields must be filled.");
+                return; // Do not add empty fields
+            }
+
+            GeneralBook newBook = new GeneralBook(title, author);
+            generalDatabase.addBook(newBook); // Use a new method to add and save
+            populateTable(); // Refresh the table
+        }
+    }
+
+    // Books of the selected rows, in view order
+    private List<GeneralBook> getSelectedBooks() {
+        List<GeneralBook> selected = new ArrayList<>();
+        for (int row : generalTable.getSelectedRows()) {
+            GeneralBook book = tableModel.getRow(row);
+            if (book != null) {
+                selected.add(book);
+            }
+        }
+        return selected;
+    }
+
+    private void deleteBook() {
+        List<GeneralBook> selected = getSelectedBooks();
+        if (selected.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please select a book to delete.");
+            return;
+        }
+
+        String message = selected.size() == 1
+            ? "Are you sure you want to delete \"" + selected.get(0).getTitle() + "\"?"
+            : "Are you sure you want to delete " + selected.size() + " books?";
+        int confirmDelete = JOptionPane.showConfirmDialog(this, 
+            message, 
+            "Confirm Deletion", 
+            JOptionPane.YES_NO_OPTION);
+
+        if (confirmDelete == JOptionPane.YES_OPTION) {
+            List<String> titles = new ArrayList<>();
+            for (GeneralBook book : selected) {
+                titles.add(book.getTitle());
+            }
+            int deleted = generalDatabase.removeBooksByTitle(titles); // One journal record for the whole selection
+            if (deleted > 0) {
+                tableModel.rowsRemoved(selected); // Drop the rows without rebuilding the view
+            } else {
+                JOptionPane.showMessageDialog(this, "Failed to delete the book."); // Handle failure
+            }
+        }
+    }
+
+    private void reassignAuthor() {
+        List<GeneralBook> selected = getSelectedBooks();
+        if (selected.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please select the books to change.");
+            return;
+        }
+
+        JTextField authorField = new JTextField(selected.get(0).getAuthor(), 15);
+        AutoCompleteSupport.install(authorField, prefix -> generalDatabase.suggestAuthors(prefix, SUGGESTION_LIMIT));
+        JPanel inputPanel = new JPanel();
+        inputPanel.add(new JLabel("Author:"));
+        inputPanel.add(authorField);
+
+        int result = JOptionPane.showConfirmDialog(this, inputPanel,
+            "Set Author of " + selected.size() + " Books", JOptionPane.OK_CANCEL_OPTION);
+        if (result == JOptionPane.OK_OPTION) {
+            String author = authorField.getText().trim();
+            if (author.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "The author field must be filled.");
+                return;
+            }
+            tableModel.rowsUpdated(generalDatabase.reassignAuthor(selected, author));
+        }
+    }
+
+    private void replaceInTitles() {
+        List<GeneralBook> selected = getSelectedBooks();
+        if (selected.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please select the books to change.");
+            return;
+        }
+
+        JTextField findField = new JTextField(15);
+        JTextField replaceField = new JTextField(15);
+        JPanel inputPanel = new JPanel();
+        inputPanel.add(new JLabel("Find:"));
+        inputPanel.add(findField);
+        inputPanel.add(new JLabel("Replace with:"));
+        inputPanel.add(replaceField);
+
+        int result = JOptionPane.showConfirmDialog(this, inputPanel,
+            "Find/Replace in " + selected.size() + " Titles", JOptionPane.OK_CANCEL_OPTION);
+        if (result == JOptionPane.OK_OPTION) {
+            if (findField.getText().isEmpty()) {
+                JOptionPane.showMessageDialog(this, "The find field must be filled.");
+                return;
+            }
+            List<GeneralBook> changed = generalDatabase.replaceInTitles(selected, findField.getText(), replaceField.getText());
+            tableModel.rowsUpdated(changed);
+            JOptionPane.showMessageDialog(this, changed.size() + " of " + selected.size() + " titles changed.");
+        }
+    }
+
+    private void editBook() {
+        int selectedRow = generalTable.getSelectedRow();
+        if (selectedRow == -1 || generalTable.getSelectedRowCount() > 1) {
+            JOptionPane.showMessageDialog(this, "Please select a single book to edit.");
+            return;
+        }
+
+        GeneralBook bookToEdit = tableModel.getRow(selectedRow); // The selected row is the book itself
+
+        if (bookToEdit == null) {
+            JOptionPane.showMessageDialog(this, "Book not found.");
+            return; // If the book is not found, exit
+        }
+
+        JTextField titleField = new JTextField(bookToEdit.getTitle(), 15);
+        JTextField authorField = new JTextField(bookToEdit.getAuthor(), 15);
+
+        JPanel inputPanel = new JPanel();
+        inputPanel.add(new JLabel("Title:"));
+        inputPanel.add(titleField);
+        inputPanel.add(new JLabel("Author:"));
+        inputPanel.add(authorField);
+
+        int result = JOptionPane.showConfirmDialog(this, inputPanel, "Edit Book", JOptionPane.OK_CANCEL_OPTION);
+
+        if (result == JOptionPane.OK_OPTION) {
+            generalDatabase.editBook(bookToEdit, titleField.getText(), authorField.getText()); // Save changes
+            populateTable(); // Refresh the table
+        }
+    }
+
+    // Streams the chosen file into the catalog off the EDT, showing progress as batches land
+    private void importCsv() {
+        JFileChooser chooser = new JFileChooser(new File("."));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+
+        JLabel progressLabel = new JLabel("Importing " + file.getName() + "...");
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        JDialog progressDialog = new JDialog(this, "Import CSV", false);
+        progressDialog.setLayout(new BorderLayout(10, 10));
+        progressDialog.add(progressLabel, BorderLayout.NORTH);
+        progressDialog.add(progressBar, BorderLayout.CENTER);
+        progressDialog.pack();
+        progressDialog.setLocationRelativeTo(this);
+        progressDialog.setVisible(true);
+        importButton.setEnabled(false);
+
+        new SwingWorker<CatalogImporter.Result, String>() {
+            @Override
+            protected CatalogImporter.Result doInBackground() throws Exception {
+                CatalogImporter importer = new CatalogImporter(generalDatabase);
+                importer.setProgressListener((rowsRead, imported, rejected) ->
+                    publish("Read " + rowsRead + " rows: " + imported + " imported, " + rejected + " rejected"));
+                return importer.importFile(file);
+            }
+
+            @Override
+            protected void process(List<String> updates) {
+                progressLabel.setText(updates.get(updates.size() - 1)); // Only the latest totals matter
+                populateTable(); // Show the batches imported so far
+            }
+
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                importButton.setEnabled(true);
+                populateTable(); // Refresh the table
+                try {
+                    showImportSummary(get());
+                } catch (Exception e) {
+                    e.printStackTrace(); // Handle import failure
+                    JOptionPane.showMessageDialog(AdminInterface.this, "Import failed: " + e.getCause());
+                }
+            }
+        }.execute();
+    }
+
+    private void showImportSummary(CatalogImporter.Result result) {
+        StringBuilder summary = new StringBuilder()
+            .append(result.getImported()).append(" of ").append(result.getRowsRead()).append(" rows imported, ")
+            .append(result.getRejected()).append(" rejected.");
+        if (result.getRejected() > 0) {
+            summary.append("\n");
+            for (CatalogImporter.Reject reject : result.getRejects()) {
+                summary.append("\n").append(reject);
+            }
+            if (result.getRejected() > result.getRejects().size()) {
+                summary.append("\n... and ").append(result.getRejected() - result.getRejects().size()).append(" more");
+            }
+        }
+        JTextArea textArea = new JTextArea(summary.toString(), 15, 50);
+        textArea.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "Import Finished", JOptionPane.INFORMATION_MESSAGE);
+    }
+}
@@ -0,0 +1,119 @@
+import javax.swing.*;
+import javax.swing.event.*;
+import java.awt.event.*;
+import java.util.List;
+import java.util.function.Function;
+
+// Type-ahead popup for a text field. Suggestions come from a fast provider (a CompletionTrie
+// lookup), so they are computed directly on the EDT as the user types. The provider must never
+// block; GeneralDatabase returns no suggestions until its tries are built in the background.
+public class AutoCompleteSupport {
+    private static final int MAX_SUGGESTIONS = 8;
+
+    private final JTextField field;
+    private final Function<String, List<String>> provider;
+    private final JPopupMenu popup = new JPopupMenu();
+    private final DefaultListModel<String> suggestionModel = new DefaultListModel<>();
+    private final JList<String> suggestionList = new JList<>(suggestionModel);
+    private boolean applying; // Set while a chosen suggestion is written back into the field
+
+    private AutoCompleteSupport(JTextField field, Function<String, List<String>> provider) {
+        this.field = field;
+        this.provider = provider;
+
+        popup.setFocusable(false); // Keep typing in the field while the popup is open
+        suggestionList.setFocusable(false);
+        suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        popup.add(new JScrollPane(suggestionList));
+
+        suggestionList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                accept();
+            }
+        });
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                SwingUtilities.invokeLater(() -> update());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                SwingUtilities.invokeLater(() -> update());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not affect suggestions
+            }
+        });
+
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) {
+                    return;
+                }
+                int selected = suggestionList.getSelectedIndex();
+                if (e.getKeyCode() == KeyEvent.VK_DOWN) {
+                    suggestionList.setSelectedIndex(Math.min(selected + 1, suggestionModel.size() - 1));
+                    e.consume();
+                } else if (e.getKeyCode() == KeyEvent.VK_UP) {
+                    suggestionList.setSelectedIndex(Math.max(selected - 1, 0));
+                    e.consume();
+                } else if (e.getKeyCode() == KeyEvent.VK_ENTER && selected != -1) {
+                    accept();
+                    e.consume();
+                } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    popup.setVisible(false);
+                    e.consume();
+                }
+            }
+        });
+
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                popup.setVisible(false);
+            }
+        });
+    }
+
+    public static void install(JTextField field, Function<String, List<String>> provider) {
+        new AutoCompleteSupport(field, provider);
+    }
+
+    private void update() {
+        if (applying || !field.isShowing()) {
+            return;
+        }
+        String text = field.getText();
+        List<String> suggestions = text.trim().isEmpty() ? List.of() : provider.apply(text);
+        suggestionModel.clear();
+        for (int i = 0; i < suggestions.size() && i < MAX_SUGGESTIONS; i++) {
+            if (!suggestions.get(i).equalsIgnoreCase(text)) {
+                suggestionModel.addElement(suggestions.get(i)); // Nothing to suggest for an exact match
+            }
+        }
+        if (suggestionModel.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+        suggestionList.setVisibleRowCount(suggestionModel.size());
+        popup.pack();
+        popup.show(field, 0, field.getHeight());
+        field.requestFocusInWindow();
+    }
+
+    private void accept() {
+        String choice = suggestionList.getSelectedValue();
+        if (choice != null) {
+            applying = true;
+            field.setText(choice);
+            SwingUtilities.invokeLater(() -> applying = false); // Runs after the updates queued by setText
+        }
+        popup.setVisible(false);
+    }
+}
@@ -0,0 +1,317 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.event.*;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Table model that reads rows straight from a database's backing list instead of copying them.
+// Cell values are computed only when JTable asks for them, which is just the visible rows.
+// Filtering and sorting produce an int[] permutation into the backing list; with neither active
+// the model is a pass-through and holds no per-row state at all.
+// A model fed by a supplier of immutable catalog versions picks up the latest version on refresh.
+// A fixed list may change on the EDT, so search workers filter a snapshotRows() copy of it and
+// showView recomputes a view whose snapshot no longer matches the list.
+// A filter that depends on outside data, such as a search index, is installed as a query and
+// rebuilt on every refresh, so rows added or edited since the search are matched afresh.
+public abstract class BookTableModel<T> extends AbstractTableModel {
+    // A permutation together with the version of the rows it indexes
+    public static final class View<T> {
+        private final List<T> rows;
+        private final int[] order; // Indices into rows, or null for the natural order
+
+        private View(List<T> rows, int[] order) {
+            this.rows = rows;
+            this.order = order;
+        }
+
+        // Number of rows the view shows
+        public int size() {
+            return order == null ? rows.size() : order.length;
+        }
+    }
+
+    private static final LatencyHistogram BUILD_TIMER = Metrics.timer("table.build");
+    private static final LatencyHistogram SHOW_TIMER = Metrics.timer("table.show");
+
+    private final String[] columns;
+    private final Supplier<List<T>> source; // Latest version of the rows, or null for a fixed list
+    private final List<T> fixedRows; // The live list of a fixed-list model; read on the EDT only
+    private List<T> rows;
+    private int[] view; // Indices into rows, or null for the natural order
+    private Predicate<T> filter;
+    private Supplier<Predicate<T>> query; // Rebuilds filter on refresh; null when filter stands alone
+    private volatile Comparator<T> comparator; // Also read by search workers
+
+    protected BookTableModel(String[] columns, List<T> rows) {
+        this.columns = columns;
+        this.source = null;
+        this.fixedRows = rows;
+        this.rows = rows;
+    }
+
+    protected BookTableModel(String[] columns, Supplier<List<T>> source) {
+        this.columns = columns;
+        this.source = source;
+        this.fixedRows = null;
+        this.rows = source.get();
+    }
+
+    // Display value of one cell, computed on demand
+    protected abstract Object valueAt(T item, int column);
+
+    // Natural ordering of a column, on raw values rather than display strings
+    protected abstract Comparator<T> comparator(int column);
+
+
+    public void setFilter(Predicate<T> filter) {
+        this.query = null;
+        this.filter = filter;
+        refresh();
+    }
+
+    public void setQuery(Supplier<Predicate<T>> query) {
+        this.query = query;
+        refresh();
+    }
+
+    public void sortBy(int column, boolean ascending) {
+        Comparator<T> columnOrder = comparator(column);
+        this.comparator = ascending ? columnOrder : columnOrder.reversed();
+        refresh();
+    }
+
+    public void clearSort() {
+        this.comparator = null;
+        refresh();
+    }
+
+    // Re-applies filter and sort after the backing list changed
+    public void refresh() {
+        Predicate<T> current = query != null ? query.get() : filter;
+        showView(query, current, buildView(current));
+    }
+
+    // Rows a search worker may filter while the EDT keeps changing the list; call on the EDT
+    public List<T> snapshotRows() {
+        return source != null ? source.get() : new ArrayList<>(fixedRows);
+    }
+
+    // Computes the permutation for a filter under the current sort over the latest rows. Safe off
+    // the EDT for supplier-fed models; a fixed list must be passed through snapshotRows() instead.
+    public View<T> buildView(Predicate<T> filter) {
+        return buildView(source != null ? source.get() : fixedRows, filter);
+    }
+
+    // Gives up with a CancellationException when the calling thread is interrupted
+    public View<T> buildView(List<T> rows, Predicate<T> filter) {
+        Comparator<T> order = comparator;
+        if (filter == null && order == null) {
+            return new View<>(rows, null);
+        }
+        long start = System.nanoTime();
+        int[] indices = new int[rows.size()];
+        int count = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if ((i & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException(); // A newer search superseded this one
+            }
+            if (filter == null || filter.test(rows.get(i))) {
+                indices[count++] = i;
+            }
+        }
+        int[] result = count == indices.length ? indices : Arrays.copyOf(indices, count);
+        if (order != null) {
+            sortIndices(rows, result, new int[result.length], 0, result.length, order);
+        }
+        BUILD_TIMER.record(System.nanoTime() - start); // Pass-through views cost nothing and are not timed
+        return new View<>(rows, result);
+    }
+
+    // Installs a permutation computed by buildView; must run on the EDT
+    public void showView(Predicate<T> filter, View<T> view) {
+        showView(null, filter, view);
+    }
+
+    // Same, for a filter the query produced; later refreshes run the query again
+    public void showView(Supplier<Predicate<T>> query, Predicate<T> filter, View<T> view) {
+        if (fixedRows != null && view.rows != fixedRows) {
+            if (!sameRows(view.rows, fixedRows)) {
+                view = buildView(fixedRows, filter); // Rows were added or deleted since the snapshot
+            }
+            view = new View<>(fixedRows, view.order); // Same books at the same positions
+        }
+        this.query = query;
+        this.filter = filter;
+        this.rows = view.rows;
+        this.view = view.order;
+        long start = System.nanoTime();
+        fireTableDataChanged(); // JTable re-validates here, on the EDT
+        SHOW_TIMER.record(System.nanoTime() - start);
+    }
+
+    // Repaints edited rows without refiltering or resorting when neither is active; must run on the EDT
+    public void rowsUpdated(Collection<T> changed) {
+        List<T> latest = source != null ? source.get() : rows;
+        if (filter != null || comparator != null || latest.size() != rows.size()) {
+            refresh(); // The edit may move rows in or out of the view
+            return;
+        }
+        rows = latest;
+        Set<T> edited = Collections.newSetFromMap(new IdentityHashMap<>());
+        edited.addAll(changed);
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < rows.size(); i++) {
+            if (edited.contains(rows.get(i))) {
+                first = first < 0 ? i : first;
+                last = i;
+            }
+        }
+        if (first >= 0) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    // Drops removed rows from the current permutation instead of rebuilding it; must run on the EDT
+    public void rowsRemoved(Collection<T> removed) {
+        if (source == null) {
+            refresh(); // A fixed list was already changed in place, the old positions are gone
+            return;
+        }
+        List<T> latest = source.get();
+        Set<T> gone = Collections.newSetFromMap(new IdentityHashMap<>());
+        gone.addAll(removed);
+        int[] newIndex = new int[rows.size()]; // Position in the latest rows, or -1 if removed
+        int kept = 0;
+        for (int i = 0; i < newIndex.length; i++) {
+            newIndex[i] = gone.contains(rows.get(i)) ? -1 : kept++;
+        }
+        if (latest.size() != kept) {
+            refresh(); // Other changes landed in between
+            return;
+        }
+        int oldCount = getRowCount();
+        boolean[] deleted = new boolean[oldCount];
+        if (view == null) {
+            for (int i = 0; i < oldCount; i++) {
+                deleted[i] = newIndex[i] < 0;
+            }
+        } else {
+            int[] order = new int[view.length];
+            int count = 0;
+            for (int i = 0; i < view.length; i++) {
+                int index = newIndex[view[i]];
+                deleted[i] = index < 0;
+                if (index >= 0) {
+                    order[count++] = index;
+                }
+            }
+            view = Arrays.copyOf(order, count);
+        }
+        rows = latest;
+        for (int end = oldCount - 1; end >= 0; end--) { // Bottom up, so earlier ranges keep their positions
+            if (!deleted[end]) {
+                continue;
+            }
+            int start = end;
+            while (start > 0 && deleted[start - 1]) {
+                start--;
+            }
+            fireTableRowsDeleted(start, end);
+            end = start;
+        }
+    }
+
+    private static <T> boolean sameRows(List<T> snapshot, List<T> live) {
+        if (snapshot.size() != live.size()) {
+            return false;
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.get(i) != live.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public T getRow(int viewRow) {
+        int index = view == null ? viewRow : view[viewRow];
+        return index < rows.size() ? rows.get(index) : null;
+    }
+
+    // Cycles a clicked column through ascending, descending and the original order
+    public void installHeaderSorting(JTable table) {
+        Map<Integer, Integer> sortClickCount = new HashMap<>(); // Track the click count for each column
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int columnIndex = table.columnAtPoint(e.getPoint());
+                int clickCount = sortClickCount.getOrDefault(columnIndex, 0) + 1;
+
+                if (clickCount == 1) {
+                    sortBy(columnIndex, true); // First click - ascending order
+                } else if (clickCount == 2) {
+                    sortBy(columnIndex, false); // Second click - descending order
+                } else {
+                    clearSort(); // Third click - reset to the original order
+                    clickCount = 0;
+                }
+
+                sortClickCount.clear(); // Only one column is sorted at a time
+                sortClickCount.put(columnIndex, clickCount);
+            }
+        });
+    }
+
+    @Override
+    public int getRowCount() {
+        return view == null ? rows.size() : view.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T item = getRow(rowIndex);
+        return item == null ? null : valueAt(item, columnIndex);
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Cells are not editable
+    }
+
+    // Stable merge sort of row indices; avoids boxing every index for Arrays.sort
+    private static <T> void sortIndices(List<T> rows, int[] indices, int[] scratch, int from, int to,
+                                        Comparator<T> comparator) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortIndices(rows, indices, scratch, from, middle, comparator);
+        sortIndices(rows, indices, scratch, middle, to, comparator);
+        if (comparator.compare(rows.get(indices[middle - 1]), rows.get(indices[middle])) <= 0) {
+            return; // Halves already in order
+        }
+        System.arraycopy(indices, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.compare(rows.get(scratch[left]), rows.get(scratch[right])) <= 0)) {
+                indices[i] = scratch[left++];
+            } else {
+                indices[i] = scratch[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import java.io.*;
+import java.util.*;
+
+// Bulk import of reading lists such as brodsky.csv into the general catalog.
+// The file is streamed row by row; titles and authors are normalized, rows that duplicate the
+// catalog or an earlier row are rejected, and the rest are added in batches so each batch costs
+// one lock acquisition and one journal flush instead of one per book.
+public class CatalogImporter {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int MAX_KEPT_REJECTS = 1000; // Later rejects are only counted
+
+    public interface ProgressListener {
+        // Called after every batch with running totals
+        void onProgress(int rowsRead, int imported, int rejected);
+    }
+
+    public static class Reject {
+        private final int row; // 1-based data row, header excluded
+        private final String title;
+        private final String reason;
+
+        private Reject(int row, String title, String reason) {
+            this.row = row;
+            this.title = title;
+            this.reason = reason;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + row + (title.isEmpty() ? "" : " \"" + title + "\"") + ": " + reason;
+        }
+    }
+
+    public static class Result {
+        private int rowsRead;
+        private int imported;
+        private int rejected;
+        private final List<Reject> rejects = new ArrayList<>();
+
+        public int getRowsRead() {
+            return rowsRead;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        // At most MAX_KEPT_REJECTS entries; getRejected() has the full count
+        public List<Reject> getRejects() {
+            return rejects;
+        }
+
+        private void reject(int row, String title, String reason) {
+            rejected++;
+            if (rejects.size() < MAX_KEPT_REJECTS) {
+                rejects.add(new Reject(row, title, reason));
+            }
+        }
+    }
+
+    private final GeneralDatabase generalDatabase;
+    private final int batchSize;
+    private ProgressListener progressListener;
+
+    public CatalogImporter(GeneralDatabase generalDatabase) {
+        this(generalDatabase, DEFAULT_BATCH_SIZE);
+    }
+
+    public CatalogImporter(GeneralDatabase generalDatabase, int batchSize) {
+        this.generalDatabase = generalDatabase;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public void setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+    }
+
+    // Expects a header row; Title and Author columns are located by name, else the first two are used
+    public Result importFile(File file) throws IOException {
+        Result result = new Result();
+        Set<String> seenTitles = new HashSet<>(); // Normalized titles of this file
+        List<GeneralBook> batch = new ArrayList<>(batchSize);
+        Map<GeneralBook, Integer> batchRows = new IdentityHashMap<>();
+        int[] columns = {-1, -1}; // Title and author column, resolved from the header
+
+        CsvReader.stream(file, false, row -> {
+            if (columns[0] < 0) {
+                resolveColumns(row, columns);
+                return null; // Header row
+            }
+            result.rowsRead++;
+            String title = row.size() > columns[0] ? normalize(row.get(columns[0])) : "";
+            String author = row.size() > columns[1] ? normalize(row.get(columns[1])) : "";
+            if (title.isEmpty()) {
+                result.reject(result.rowsRead, "", "Missing title");
+                return null;
+            }
+            if (!seenTitles.add(title.toLowerCase(Locale.ROOT))) {
+                result.reject(result.rowsRead, title, "Duplicate title in this file");
+                return null;
+            }
+            if (generalDatabase.findByTitle(title) != null) {
+                result.reject(result.rowsRead, title, "Already in the catalog");
+                return null;
+            }
+            GeneralBook book = new GeneralBook(title, author.isEmpty() ? "Unknown" : author);
+            batchRows.put(book, result.rowsRead);
+            return book;
+        }, book -> {
+            batch.add(book);
+            if (batch.size() >= batchSize) {
+                flush(batch, batchRows, result);
+            }
+        });
+        flush(batch, batchRows, result);
+        return result;
+    }
+
+    private void flush(List<GeneralBook> batch, Map<GeneralBook, Integer> batchRows, Result result) {
+        if (!batch.isEmpty()) {
+            List<GeneralBook> duplicates = generalDatabase.addBooks(batch);
+            for (GeneralBook duplicate : duplicates) {
+                result.reject(batchRows.get(duplicate), duplicate.getTitle(), "Already in the catalog");
+            }
+            result.imported += batch.size() - duplicates.size();
+            batch.clear();
+            batchRows.clear();
+        }
+        if (progressListener != null) {
+            progressListener.onProgress(result.rowsRead, result.imported, result.rejected);
+        }
+    }
+
+    private static void resolveColumns(CsvReader.Row header, int[] columns) {
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim();
+            if (name.equalsIgnoreCase("Title") && columns[0] < 0) {
+                columns[0] = i;
+            } else if (name.equalsIgnoreCase("Author") && columns[1] < 0) {
+                columns[1] = i;
+            }
+        }
+        if (columns[0] < 0) {
+            columns[0] = 0;
+        }
+        if (columns[1] < 0) {
+            columns[1] = columns[0] == 0 ? 1 : 0;
+        }
+    }
+
+    // Collapses runs of whitespace, including line breaks inside quoted fields and no-break spaces
+    static String normalize(String value) {
+        return value.replaceAll("[\\s\\u00A0]+", " ").trim();
+    }
+
+    // java CatalogImporter <file.csv> [batch size]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java CatalogImporter <file.csv> [batch size]");
+            System.exit(2);
+        }
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BATCH_SIZE;
+        CatalogImporter importer = new CatalogImporter(new GeneralDatabase(), batchSize);
+        importer.setProgressListener((rowsRead, imported, rejected) ->
+            System.out.println("Read " + rowsRead + " rows: " + imported + " imported, " + rejected + " rejected"));
+
+        Result result = importer.importFile(new File(args[0]));
+        for (Reject reject : result.getRejects()) {
+            System.out.println("  " + reject);
+        }
+        if (result.getRejected() > result.getRejects().size()) {
+            System.out.println("  ... and " + (result.getRejected() - result.getRejects().size()) + " more");
+        }
+        System.out.println("Done: " + result.getImported() + " of " + result.getRowsRead() + " rows imported.");
+    }
+}
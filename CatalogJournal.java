@@ -0,0 +1,251 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead log of GeneralDatabase mutations.
+// Each record is framed as [int length][int crc][byte op][int argCount][args...] so a torn tail
+// left by a crash is detected and dropped instead of being replayed as garbage.
+// The file starts with [int magic][long generation]; every checkpoint bumps the generation, which
+// tells processes sharing the directory that their read position no longer applies.
+// Callers hold the CatalogLock around appends, reads of the tail and resets.
+public class CatalogJournal {
+    private static final int MAGIC = 0xCA7A1061; // Negative, so never mistaken for a record length
+    private static final int HEADER_SIZE = 12;
+
+    public static final byte OP_ADD = 1;     // title, author
+    public static final byte OP_REMOVE = 2;  // title
+    public static final byte OP_RATE = 3;    // title, rating
+    public static final byte OP_REVIEW = 4;  // title, review
+    public static final byte OP_EDIT = 5;    // old title, new title, new author, catalog position (older records lack it)
+    public static final byte OP_BATCH = 6;   // op, args per row, then the args of every row
+
+    public static class Entry {
+        private final byte op;
+        private final String[] args;
+
+        public Entry(byte op, String... args) {
+            this.op = op;
+            this.args = args;
+        }
+
+        public byte getOp() {
+            return op;
+        }
+
+        public String getArg(int index) {
+            return args[index];
+        }
+
+        public int getArgCount() {
+            return args.length;
+        }
+
+        // One record for many rows of the same op, so a batch is replayed entirely or not at all
+        public static Entry batch(byte op, List<String[]> rows) {
+            int arity = rows.isEmpty() ? 0 : rows.get(0).length;
+            String[] args = new String[2 + rows.size() * arity];
+            args[0] = Byte.toString(op);
+            args[1] = Integer.toString(arity);
+            for (int i = 0; i < rows.size(); i++) {
+                System.arraycopy(rows.get(i), 0, args, 2 + i * arity, arity);
+            }
+            return new Entry(OP_BATCH, args);
+        }
+
+        public byte getBatchOp() {
+            return Byte.parseByte(args[0]);
+        }
+
+        public List<String[]> getBatchRows() {
+            int arity = Integer.parseInt(args[1]);
+            List<String[]> rows = new ArrayList<>();
+            for (int i = 2; arity > 0 && i + arity <= args.length; i += arity) {
+                rows.add(Arrays.copyOfRange(args, i, i + arity));
+            }
+            return rows;
+        }
+    }
+
+    private final File file;
+    private DataOutputStream out;
+
+    public CatalogJournal(File file) {
+        this.file = file;
+    }
+
+    public void append(byte op, String... args) {
+        appendAll(Collections.singletonList(new Entry(op, args)));
+    }
+
+    // Writes several records with a single flush, e.g. one batch of an import
+    public void appendAll(List<Entry> entries) {
+        try {
+            if (out == null) {
+                truncateTornTail(); // Never append behind a half-written record
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            }
+            for (Entry entry : entries) {
+                byte[] payload = encode(entry);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                out.writeInt(payload.length);
+                out.writeInt((int) crc.getValue());
+                out.write(payload);
+            }
+            out.flush(); // Hand the records to the OS before the caller moves on
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle journal write error
+        }
+    }
+
+    // Collects the intact records at or after position and returns the offset just past them
+    public long readFrom(long position, List<Entry> entries) {
+        if (!file.exists()) {
+            return position;
+        }
+        try (FileInputStream stream = new FileInputStream(file)) {
+            position = Math.max(position, hasHeader(stream) ? HEADER_SIZE : 0);
+            stream.getChannel().position(position);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            byte[] payload;
+            while ((payload = readRecord(in)) != null) {
+                if (entries != null) {
+                    entries.add(decode(payload));
+                }
+                position += 8 + payload.length;
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle journal read error
+        }
+        return position;
+    }
+
+    // Journals written before the header existed count as generation 0
+    public long getGeneration() {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC ? in.readLong() : 0;
+        } catch (EOFException e) {
+            return 0; // Empty or legacy journal
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle journal read error
+            return 0;
+        }
+    }
+
+    public long size() {
+        return file.length();
+    }
+
+    // Cuts the journal back to length, e.g. to drop a record another process tore when it crashed
+    public void truncate(long length) {
+        close(); // The next append reopens behind the cut
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() > length) {
+                raf.setLength(length);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle journal truncate error
+        }
+    }
+
+    // Drops every record once a checkpoint has made them redundant; returns the new generation
+    public long reset() {
+        long generation = getGeneration() + 1;
+        close();
+        try (DataOutputStream header = new DataOutputStream(new FileOutputStream(file, false))) {
+            header.writeInt(MAGIC); // Opening without append truncates the file
+            header.writeLong(generation);
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle journal truncate error
+        }
+        return generation;
+    }
+
+    public void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            out = null;
+        }
+    }
+
+    private void truncateTornTail() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        long validLength = readFrom(0, null);
+        if (validLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+    }
+
+    private static boolean hasHeader(FileInputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        try {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null; // Clean end of journal
+        }
+        return readPayload(in, length);
+    }
+
+    // Returns null when the record is truncated or fails its checksum
+    private static byte[] readPayload(DataInputStream in, int length) throws IOException {
+        if (length <= 0) {
+            return null;
+        }
+        try {
+            int expectedCrc = in.readInt();
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == expectedCrc ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeByte(entry.op);
+        data.writeInt(entry.args.length);
+        for (String arg : entry.args) {
+            byte[] utf8 = arg.getBytes(StandardCharsets.UTF_8); // writeUTF caps strings at 64 KB
+            data.writeInt(utf8.length);
+            data.write(utf8);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(byte[] payload) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = data.readByte();
+        String[] args = new String[data.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            byte[] utf8 = new byte[data.readInt()];
+            data.readFully(utf8);
+            args[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+        return new Entry(op, args);
+    }
+}
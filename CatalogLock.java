@@ -0,0 +1,68 @@
+import java.io.*;
+import java.nio.channels.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Exclusive lock on a catalog directory shared by several processes.
+// The OS-level FileLock keeps other processes out; a reentrant lock per file keeps out other
+// GeneralDatabase instances in this process, which FileChannel.lock() would reject instead.
+// Readers of files that writers update in place can take the OS lock shared instead.
+public class CatalogLock {
+    private static final Map<String, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final ReentrantLock processLock;
+    private FileChannel channel;
+    private FileLock fileLock;
+
+    public CatalogLock(File file) {
+        this.file = file;
+        this.processLock = PROCESS_LOCKS.computeIfAbsent(file.getAbsolutePath(), path -> new ReentrantLock());
+    }
+
+    // Blocks until no other process or instance is writing; nested calls only count
+    public void lock() {
+        processLock.lock();
+        if (processLock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            if (channel == null) {
+                channel = new RandomAccessFile(file, "rw").getChannel();
+            }
+            fileLock = channel.lock();
+        } catch (IOException e) {
+            e.printStackTrace(); // Fall back to in-process locking only
+        }
+    }
+
+    // Like lock(), but other processes may hold the shared lock at the same time; only writers
+    // wait. Inside this process it is still exclusive, and nested calls keep the outer mode
+    public void lockShared() {
+        processLock.lock();
+        if (processLock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            if (channel == null) {
+                channel = new RandomAccessFile(file, "rw").getChannel();
+            }
+            fileLock = channel.lock(0, Long.MAX_VALUE, true);
+        } catch (IOException e) {
+            e.printStackTrace(); // Fall back to in-process locking only
+        }
+    }
+
+    public void unlock() {
+        if (processLock.getHoldCount() == 1 && fileLock != null) {
+            try {
+                fileLock.release();
+            } catch (IOException e) {
+                e.printStackTrace(); // Handle lock release error
+            }
+            fileLock = null;
+        }
+        processLock.unlock();
+    }
+}
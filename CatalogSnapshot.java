@@ -0,0 +1,156 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Binary image of the general.csv checkpoint, opened through a memory map on startup.
+// Layout: header, fixed-width book records (string ids, exact rating sum/count, review log handle,
+// star histogram), then a string table (offsets + UTF-8 blob) holding titles and authors.
+// The header remembers the size and timestamp of the CSV it was built from, so a hand-edited
+// or newer CSV is detected and re-parsed instead of trusting a stale snapshot. Like the CSV header,
+// it also records the journal generation whose records the checkpoint already contains.
+// Reading still builds a GeneralBook for every record, since the title index needs each title on
+// startup; what the snapshot saves is the CSV parsing, and each distinct string is decoded only once.
+public class CatalogSnapshot {
+    private static final int MAGIC = 0x4C425331; // "LBS1"
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 48;
+    private static final int RECORD_SIZE = 56;
+
+    // Returns null when the snapshot is missing, stale or unreadable.
+    // Rating aggregates are restored straight into the given store.
+    public static List<GeneralBook> read(File snapshotFile, File csvFile, RatingStore ratingStore) {
+        if (!snapshotFile.exists() || !csvFile.exists() || snapshotFile.length() > Integer.MAX_VALUE) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getLong(8) != csvFile.length() || buffer.getLong(16) != csvFile.lastModified()) {
+                return null; // Written by another version or for another CSV
+            }
+            int bookCount = buffer.getInt(24);
+            int stringCount = buffer.getInt(28);
+            int stringTable = (int) buffer.getLong(32);
+            String[] strings = readStrings(buffer, stringTable, stringCount);
+
+            List<GeneralBook> books = new ArrayList<>(bookCount);
+            for (int i = 0; i < bookCount; i++) {
+                int record = HEADER_SIZE + i * RECORD_SIZE;
+                GeneralBook book = new GeneralBook(strings[buffer.getInt(record)], strings[buffer.getInt(record + 4)]);
+                int[] stars = new int[RatingStore.STARS];
+                for (int s = 0; s < stars.length; s++) {
+                    stars[s] = buffer.getInt(record + 32 + s * 4);
+                }
+                book.attachRatings(ratingStore);
+                book.restoreRating(buffer.getLong(record + 8), buffer.getInt(record + 16), stars);
+                book.restoreReviews(buffer.getLong(record + 24), buffer.getInt(record + 20));
+                books.add(book);
+            }
+            return books;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace(); // Treat a damaged snapshot as missing
+            return null;
+        }
+    }
+
+    // The journal generation stamped into a snapshot that read() accepted; -1 when unknown
+    public static long readCoveredGeneration(File snapshotFile) {
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "r")) {
+            file.seek(40);
+            return file.readLong();
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle snapshot read error
+            return -1;
+        }
+    }
+
+    public static void write(File snapshotFile, File csvFile, List<GeneralBook> books, long coveredGeneration) {
+        Map<String, Integer> stringIds = new HashMap<>(); // Titles and authors repeat a lot, store each once
+        List<String> strings = new ArrayList<>();
+        int[] records = new int[books.size() * 2];
+
+        for (int i = 0; i < books.size(); i++) {
+            GeneralBook book = books.get(i);
+            records[i * 2] = intern(book.getTitle(), stringIds, strings);
+            records[i * 2 + 1] = intern(book.getAuthor(), stringIds, strings);
+        }
+
+        File tempFile = new File(snapshotFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+            long stringTable = HEADER_SIZE + (long) books.size() * RECORD_SIZE;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(csvFile.length());
+            out.writeLong(csvFile.lastModified());
+            out.writeInt(books.size());
+            out.writeInt(strings.size());
+            out.writeLong(stringTable);
+            out.writeLong(coveredGeneration);
+
+            for (int i = 0; i < books.size(); i++) {
+                GeneralBook book = books.get(i);
+                out.writeInt(records[i * 2]);
+                out.writeInt(records[i * 2 + 1]);
+                out.writeLong(book.getRatingSumTenths());
+                out.writeInt(book.getRatingCount());
+                out.writeInt(book.getReviewCount());
+                out.writeLong(book.getReviewHead());
+                for (int star : book.getRatingHistogram()) {
+                    out.writeInt(star);
+                }
+                out.writeInt(0); // Padding keeps records 8-byte aligned
+            }
+
+            byte[][] encoded = new byte[strings.size()][];
+            int offset = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(offset);
+                offset += encoded[i].length;
+            }
+            out.writeInt(offset); // End offset of the last string
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle snapshot write error
+            return;
+        }
+
+        try {
+            Files.move(tempFile.toPath(), snapshotFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle snapshot swap error
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> stringIds, List<String> strings) {
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(value, id);
+            strings.add(value);
+        }
+        return id;
+    }
+
+    private static String[] readStrings(MappedByteBuffer buffer, int stringTable, int stringCount) {
+        int blob = stringTable + (stringCount + 1) * 4;
+        byte[] scratch = new byte[256];
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            int start = buffer.getInt(stringTable + i * 4);
+            int length = buffer.getInt(stringTable + (i + 1) * 4) - start;
+            if (scratch.length < length) {
+                scratch = new byte[length];
+            }
+            buffer.get(blob + start, scratch, 0, length); // Absolute bulk get, no position bookkeeping
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+}
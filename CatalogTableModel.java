@@ -0,0 +1,55 @@
+import java.util.*;
+import java.util.function.Supplier;
+
+// Catalog rows for GeneralDatabaseGUI (all columns) and AdminInterface (title and author only)
+public class CatalogTableModel extends BookTableModel<GeneralBook> {
+    private static final String[] ALL_COLUMNS = {"Title", "Author", "Rating", "Reviews"};
+    private static final String[] ADMIN_COLUMNS = {"Title", "Author"};
+
+    // Reads the current catalog version on every refresh
+    public CatalogTableModel(Supplier<List<GeneralBook>> books, boolean showRatings) {
+        super(showRatings ? ALL_COLUMNS : ADMIN_COLUMNS, books);
+    }
+
+    @Override
+    protected Object valueAt(GeneralBook book, int column) {
+        switch (column) {
+            case 0:
+                return book.getTitle();
+            case 1:
+                return book.getAuthor();
+            case 2:
+                return formatRating(book);
+            default:
+                int reviewCount = book.getReviewCount(); // Review text is only fetched when a book is opened
+                return reviewCount == 0
+                    ? "No reviews"
+                    : reviewCount + (reviewCount == 1 ? " review" : " reviews");
+        }
+    }
+
+    @Override
+    protected Comparator<GeneralBook> comparator(int column) {
+        switch (column) {
+            case 0:
+                return Comparator.comparing(GeneralBook::getTitle, String.CASE_INSENSITIVE_ORDER);
+            case 1:
+                return Comparator.comparing(GeneralBook::getAuthor, String.CASE_INSENSITIVE_ORDER);
+            case 2:
+                return Comparator.comparingDouble(GeneralBook::getAverageRating) // Numeric, not "4.50 (12)" strings
+                    .thenComparingInt(GeneralBook::getRatingCount);
+            default:
+                return Comparator.comparingInt(GeneralBook::getReviewCount);
+        }
+    }
+
+    private static String formatRating(GeneralBook book) {
+        double rating = book.getAverageRating();
+        if (rating == -1) {
+            return "No rating";
+        }
+        long hundredths = Math.round(rating * 100);
+        long fraction = hundredths % 100;
+        return (hundredths / 100) + (fraction < 10 ? ".0" : ".") + fraction + " (" + book.getRatingCount() + ")";
+    }
+}
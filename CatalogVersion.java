@@ -0,0 +1,69 @@
+import java.util.*;
+
+// One immutable version of the catalog's book list.
+// Readers hold a version for as long as they like without locking or copying. Writers derive the
+// next version: an append writes into spare capacity past this version's size, which this
+// version never reads, so adding a book is amortized O(1); removals copy the array.
+public final class CatalogVersion extends AbstractList<GeneralBook> implements RandomAccess {
+    private final GeneralBook[] items; // May be shared with later versions beyond size
+    private final int size;
+    private final long number;
+
+    private CatalogVersion(GeneralBook[] items, int size, long number) {
+        this.items = items;
+        this.size = size;
+        this.number = number;
+    }
+
+    // Each database starts from its own empty array, since appends write into it
+    public static CatalogVersion empty() {
+        return new CatalogVersion(new GeneralBook[16], 0, 0);
+    }
+
+    // Increases with every published change
+    public long getNumber() {
+        return number;
+    }
+
+    @Override
+    public GeneralBook get(int index) {
+        Objects.checkIndex(index, size);
+        return items[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Must only be called on the latest version, by the single writer
+    CatalogVersion append(GeneralBook book) {
+        GeneralBook[] target = items;
+        if (size == items.length || items[size] != null) {
+            target = Arrays.copyOf(items, Math.max(16, size * 2)); // Slot taken or no room left
+        }
+        target[size] = book;
+        return new CatalogVersion(target, size + 1, number + 1);
+    }
+
+    // Must only be called on the latest version, by the single writer
+    CatalogVersion without(Set<GeneralBook> removed) {
+        GeneralBook[] remaining = new GeneralBook[Math.max(16, items.length)];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!removed.contains(items[i])) {
+                remaining[count++] = items[i];
+            }
+        }
+        return new CatalogVersion(remaining, count, number + 1);
+    }
+
+    // Same rows, new number; used when books changed in place
+    CatalogVersion touch() {
+        return new CatalogVersion(items, size, number + 1);
+    }
+
+    CatalogVersion reset() {
+        return new CatalogVersion(new GeneralBook[16], 0, number + 1);
+    }
+}
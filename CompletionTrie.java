@@ -0,0 +1,327 @@
+import java.util.*;
+
+// Radix trie for type-ahead suggestions over normalized titles or authors.
+// Chains of single-child nodes are collapsed into one edge, so there are at most about two nodes
+// per distinct key however long the keys are. An edge label is a range of the key that created the
+// node (that key also spells the whole path above it), so labels never copy characters.
+// Nodes with children cache the top-K completions of their subtree ranked by weight (rating count)
+// in a fixed array that updates re-rank in place; a leaf's only completion is its own key.
+// A suggestion is a walk down the prefix plus a read of one small array.
+public class CompletionTrie {
+    public static final int TOP_K = 10;
+
+    private static final char[] NO_FIRSTS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static class Entry {
+        private final String key;
+        private String display; // Original spelling of the first book that used this key
+        private long weight;
+        private int references; // Books sharing this normalized text
+
+        private Entry(String key, String display) {
+            this.key = key;
+            this.display = display;
+        }
+    }
+
+    private static class Node {
+        private final String text; // text[0, end) spells the path to this node
+        private int start; // The edge from the parent is text[start, end)
+        private final int end;
+        private Node parent;
+        private char[] firsts = NO_FIRSTS; // First character of each child's edge, sorted
+        private Node[] children = NO_CHILDREN;
+        private Entry terminal;
+        private Entry[] top; // Best first; null on leaves
+        private int topSize;
+
+        private Node(String text, int start, int end, Node parent) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.parent = parent;
+        }
+
+        private int length() {
+            return end - start;
+        }
+
+        private char first() {
+            return text.charAt(start);
+        }
+
+        private Node child(char first) {
+            int index = Arrays.binarySearch(firsts, first);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private void addChild(Node child) {
+            char first = child.first();
+            int index = -(Arrays.binarySearch(firsts, first) + 1);
+            char[] newFirsts = new char[firsts.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newFirsts[index] = first;
+            newChildren[index] = child;
+            System.arraycopy(firsts, index, newFirsts, index + 1, firsts.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            firsts = newFirsts;
+            children = newChildren;
+        }
+
+        private void removeChild(char first) {
+            int index = Arrays.binarySearch(firsts, first);
+            char[] newFirsts = new char[firsts.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(firsts, index + 1, newFirsts, index, newFirsts.length - index);
+            System.arraycopy(children, index + 1, newChildren, index, newChildren.length - index);
+            firsts = newFirsts;
+            children = newChildren;
+        }
+
+        // Same first character, so the sorted order holds
+        private void replaceChild(Node child) {
+            children[Arrays.binarySearch(firsts, child.first())] = child;
+        }
+    }
+
+    private static final Comparator<Entry> BY_WEIGHT = (a, b) -> a.weight != b.weight
+        ? Long.compare(b.weight, a.weight)
+        : a.key.compareTo(b.key);
+
+    private final Node root = new Node("", 0, 0, null);
+
+    public CompletionTrie() {
+        root.top = new Entry[TOP_K]; // The root answers the empty prefix even without children
+    }
+
+    public synchronized void add(String text, long weight) {
+        String key = normalize(text);
+        Node node = insert(key);
+        if (node.terminal == null) {
+            node.terminal = new Entry(key, text);
+        }
+        node.terminal.references++;
+        node.terminal.weight += weight;
+        promote(node, node.terminal);
+    }
+
+    public synchronized void remove(String text, long weight) {
+        Node node = find(normalize(text));
+        if (node == null || node.terminal == null) {
+            return;
+        }
+        Entry entry = node.terminal;
+        entry.references--;
+        entry.weight -= weight;
+        if (entry.references <= 0) {
+            node.terminal = null;
+            node = prune(node);
+        }
+        demote(node, entry);
+    }
+
+    // Re-ranks an entry after its rating count changed
+    public synchronized void adjustWeight(String text, long delta) {
+        Node node = find(normalize(text));
+        if (node == null || node.terminal == null || delta == 0) {
+            return;
+        }
+        Entry entry = node.terminal;
+        entry.weight += delta;
+        if (delta > 0) {
+            promote(node, entry);
+        } else {
+            demote(node, entry);
+        }
+    }
+
+    public synchronized List<String> suggest(String prefix, int limit) {
+        List<String> suggestions = new ArrayList<>();
+        String key = normalize(prefix);
+        Node node = root;
+        int i = 0;
+        while (i < key.length() && node != null) {
+            Node child = node.child(key.charAt(i));
+            int length = child == null ? 0 : Math.min(child.length(), key.length() - i);
+            node = child != null && key.regionMatches(i, child.text, child.start, length) ? child : null;
+            i += length; // The prefix may end inside the edge, the subtree below still matches
+        }
+        if (node == null) {
+            return suggestions;
+        }
+        if (node.top != null) {
+            for (int j = 0; j < node.topSize && j < limit; j++) {
+                suggestions.add(node.top[j].display);
+            }
+        } else if (node.terminal != null && limit > 0) {
+            suggestions.add(node.terminal.display);
+        }
+        return suggestions;
+    }
+
+    public static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // The node spelling exactly key, or null
+    private Node find(String key) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null || !key.regionMatches(i, child.text, child.start, child.length())) {
+                return null;
+            }
+            i += child.length();
+            node = child;
+        }
+        return node;
+    }
+
+    // The node spelling exactly key, splitting an edge or adding a leaf when there is none yet
+    private Node insert(String key) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                if (node.top == null) {
+                    cacheTop(node); // A leaf gains its first child
+                }
+                Node leaf = new Node(key, i, key.length(), node);
+                node.addChild(leaf);
+                return leaf;
+            }
+            int common = 1;
+            int length = Math.min(child.length(), key.length() - i);
+            while (common < length && key.charAt(i + common) == child.text.charAt(child.start + common)) {
+                common++;
+            }
+            if (common < child.length()) {
+                child = split(child, common);
+            }
+            i += common;
+            node = child;
+        }
+        return node;
+    }
+
+    // Cuts the edge into child after length characters; returns the new node in between
+    private Node split(Node child, int length) {
+        Node parent = child.parent;
+        Node middle = new Node(child.text, child.start, child.start + length, parent);
+        child.start += length;
+        child.parent = middle;
+        middle.addChild(child);
+        parent.replaceChild(middle);
+        cacheTop(middle);
+        return middle;
+    }
+
+    // Unlinks what the removed key leaves behind: a childless node, or a node that is now just a
+    // pass-through to a single child. Returns the lowest remaining node whose list may hold the entry.
+    private Node prune(Node node) {
+        if (node == root) {
+            return root;
+        }
+        if (node.children.length == 0) {
+            Node parent = node.parent;
+            parent.removeChild(node.first());
+            if (parent.children.length == 0 && parent != root) {
+                parent.top = null; // A leaf again
+                parent.topSize = 0;
+                return parent;
+            }
+            node = parent;
+        }
+        if (node != root && node.terminal == null && node.children.length == 1) {
+            Node child = node.children[0];
+            Node parent = node.parent;
+            child.start -= node.length(); // child.text spells node's edge too
+            child.parent = parent;
+            parent.replaceChild(child);
+            return parent;
+        }
+        return node;
+    }
+
+    // A heavier or new entry can only enter or move up in the cached lists above its node
+    private void promote(Node node, Entry entry) {
+        for (; node != null; node = node.parent) {
+            if (node.top != null && !offer(node, entry)) {
+                return; // Below this node's full list, so below every ancestor's too
+            }
+        }
+    }
+
+    // A lighter or removed entry may let another one in; affected lists are rebuilt bottom-up
+    private void demote(Node node, Entry entry) {
+        for (; node != null; node = node.parent) {
+            if (node.top == null) {
+                continue;
+            }
+            if (indexOf(node, entry) < 0) {
+                return; // Ancestors cannot hold it either
+            }
+            rankChildren(node);
+        }
+    }
+
+    // Gives a node that now has children its list, filled from what is below it
+    private void cacheTop(Node node) {
+        node.top = new Entry[TOP_K];
+        rankChildren(node);
+    }
+
+    // Refills the node's list from its own key and its children's lists, reusing the array
+    private void rankChildren(Node node) {
+        node.topSize = 0;
+        if (node.terminal != null) {
+            offer(node, node.terminal);
+        }
+        for (Node child : node.children) {
+            if (child.top != null) {
+                for (int i = 0; i < child.topSize && offer(node, child.top[i]); i++) {
+                    // Child lists are sorted, the rest of this one ranks lower still
+                }
+            } else if (child.terminal != null) {
+                offer(node, child.terminal);
+            }
+        }
+    }
+
+    // Moves the entry up in the node's list, or lets it in if it beats the last one; false when it
+    // ranks below the whole full list
+    private static boolean offer(Node node, Entry entry) {
+        int index = indexOf(node, entry);
+        if (index < 0) {
+            if (node.topSize < TOP_K) {
+                index = node.topSize++;
+            } else if (BY_WEIGHT.compare(entry, node.top[TOP_K - 1]) < 0) {
+                index = TOP_K - 1; // Displaces the last one
+            } else {
+                return false;
+            }
+        }
+        while (index > 0 && BY_WEIGHT.compare(entry, node.top[index - 1]) < 0) {
+            node.top[index] = node.top[index - 1];
+            index--;
+        }
+        node.top[index] = entry;
+        return true;
+    }
+
+    private static int indexOf(Node node, Entry entry) {
+        for (int i = 0; i < node.topSize; i++) {
+            if (node.top[i] == entry) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
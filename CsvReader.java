@@ -0,0 +1,235 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+// RFC 4180 reader shared by the general and personal databases.
+// Handles quoted fields (embedded commas, quotes and line breaks), CRLF endings and a leading UTF-8 BOM.
+// Large files are cut into line-aligned chunks that are parsed in parallel; rows keep file order.
+// stream() instead reads through a bounded buffer for files that should not be held in memory.
+public class CsvReader {
+    public interface RowMapper<T> {
+        T map(Row row); // Return null to skip the row
+    }
+
+    // Reusable view over one parsed row; strings are only created for the fields a mapper asks for
+    public static final class Row {
+        private final char[] text;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private boolean[] escaped = new boolean[16];
+        private int size;
+
+        private Row(char[] text) {
+            this.text = text;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public String get(int index) {
+            String raw = new String(text, starts[index], ends[index] - starts[index]);
+            return escaped[index] ? raw.replace("\"\"", "\"") : raw;
+        }
+
+        private void reset() {
+            size = 0;
+        }
+
+        private void add(int start, int end, boolean hasEscapes) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                escaped = Arrays.copyOf(escaped, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            escaped[size] = hasEscapes;
+            size++;
+        }
+
+        private boolean isBlank() {
+            return size == 1 && starts[0] == ends[0];
+        }
+    }
+
+    private static final int PARALLEL_CHUNK_SIZE = 1 << 20; // ~1M chars per parallel chunk
+    private static final int STREAM_BUFFER_SIZE = 1 << 16; // Grows only for rows longer than this
+
+    public static <T> List<T> read(File file, boolean skipHeader, RowMapper<T> mapper) throws IOException {
+        char[] text = decode(Files.readAllBytes(file.toPath()));
+        int begin = text.length > 0 && text[0] == '\uFEFF' ? 1 : 0; // Skip the UTF-8 BOM
+
+        int[] bounds = chunkBoundaries(text, begin);
+        int chunks = bounds.length - 1;
+        List<List<T>> parts = new ArrayList<>(Collections.nCopies(chunks, null));
+
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1) {
+            range = range.parallel(); // Small files are not worth the fork/join overhead
+        }
+        range.forEach(i -> {
+            List<T> part = new ArrayList<>();
+            parseChunk(text, bounds[i], bounds[i + 1], skipHeader && i == 0, mapper, part::add);
+            parts.set(i, part);
+        });
+
+        List<T> result = new ArrayList<>();
+        for (List<T> part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    // Reads the file sequentially, handing each mapped row to the sink in file order
+    public static <T> void stream(File file, boolean skipHeader, RowMapper<T> mapper, Consumer<T> sink) throws IOException {
+        try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[STREAM_BUFFER_SIZE];
+            int length = 0;
+            boolean first = true;
+            boolean headerPending = skipHeader;
+            while (true) {
+                int read = in.read(buffer, length, buffer.length - length);
+                boolean eof = read < 0;
+                if (!eof) {
+                    length += read;
+                }
+                int begin = 0;
+                if (first && length > 0) {
+                    begin = buffer[0] == '\uFEFF' ? 1 : 0; // Skip the UTF-8 BOM
+                    first = false;
+                }
+                int end = eof ? length : lastRowEnd(buffer, begin, length);
+                if (end > begin) {
+                    parseChunk(buffer, begin, end, headerPending, mapper, sink);
+                    headerPending = false;
+                }
+                if (eof) {
+                    return;
+                }
+                int remaining = length - Math.max(end, begin);
+                if (end == begin && remaining == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2); // One row fills the whole buffer
+                } else {
+                    System.arraycopy(buffer, Math.max(end, begin), buffer, 0, remaining);
+                }
+                length = remaining;
+            }
+        }
+    }
+
+    // Position just after the last line break outside quotes, or begin if the buffer holds no full row
+    private static int lastRowEnd(char[] text, int begin, int length) {
+        int end = begin;
+        boolean inQuotes = false;
+        for (int i = begin; i < length; i++) {
+            char c = text[i];
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == '\n' && !inQuotes) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    private static char[] decode(byte[] bytes) {
+        CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes));
+        return chars.hasArray() && chars.arrayOffset() == 0 && chars.limit() == chars.array().length
+            ? chars.array()
+            : Arrays.copyOfRange(chars.array(), chars.arrayOffset(), chars.arrayOffset() + chars.limit());
+    }
+
+    // Chunk boundaries always fall right after a line break that is outside quotes
+    private static int[] chunkBoundaries(char[] text, int begin) {
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(begin);
+        int nextTarget = begin + PARALLEL_CHUNK_SIZE;
+        boolean inQuotes = false;
+        for (int i = begin; i < text.length; i++) {
+            char c = text[i];
+            if (c == '"') {
+                inQuotes = !inQuotes; // An escaped "" flips twice and stays balanced
+            } else if (c == '\n' && !inQuotes && i + 1 >= nextTarget && i + 1 < text.length) {
+                bounds.add(i + 1);
+                nextTarget = i + 1 + PARALLEL_CHUNK_SIZE;
+            }
+        }
+        bounds.add(text.length);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static <T> void parseChunk(char[] text, int from, int to, boolean skipFirst, RowMapper<T> mapper,
+                                       Consumer<T> sink) {
+        Row row = new Row(text);
+        int pos = from;
+        boolean first = true;
+
+        while (pos < to) {
+            row.reset();
+            pos = parseRow(text, pos, to, row);
+            if (first && skipFirst) {
+                first = false;
+                continue; // Header row
+            }
+            first = false;
+            if (row.isBlank()) {
+                continue;
+            }
+            T mapped = mapper.map(row);
+            if (mapped != null) {
+                sink.accept(mapped);
+            }
+        }
+    }
+
+    // Parses one row starting at pos and returns the position of the next row
+    private static int parseRow(char[] text, int pos, int to, Row row) {
+        while (true) {
+            if (pos < to && text[pos] == '"') {
+                int start = ++pos;
+                boolean hasEscapes = false;
+                while (pos < to) {
+                    if (text[pos] == '"') {
+                        if (pos + 1 < to && text[pos + 1] == '"') {
+                            hasEscapes = true;
+                            pos += 2;
+                            continue;
+                        }
+                        break; // Closing quote
+                    }
+                    pos++;
+                }
+                row.add(start, Math.min(pos, to), hasEscapes);
+                pos++; // Skip the closing quote
+                while (pos < to && text[pos] != ',' && text[pos] != '\n' && text[pos] != '\r') {
+                    pos++; // Tolerate stray characters after a closing quote
+                }
+            } else {
+                int start = pos;
+                while (pos < to && text[pos] != ',' && text[pos] != '\n' && text[pos] != '\r') {
+                    pos++;
+                }
+                row.add(start, pos, false);
+            }
+
+            if (pos >= to) {
+                return to;
+            }
+            char c = text[pos];
+            if (c == ',') {
+                pos++;
+                continue; // Next field
+            }
+            if (c == '\r' && pos + 1 < to && text[pos + 1] == '\n') {
+                pos++;
+            }
+            return pos + 1; // End of row
+        }
+    }
+}
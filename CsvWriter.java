@@ -0,0 +1,88 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+// RFC 4180 writer shared by the general and personal databases.
+// Rows are encoded into one reusable buffer and quoted only when a field needs it.
+public class CsvWriter implements Closeable {
+    private final Writer out;
+    private final StringBuilder row = new StringBuilder(256); // Reused for every row
+    private boolean firstField = true;
+
+    public CsvWriter(File file) throws IOException {
+        this(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16));
+    }
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public CsvWriter field(String value) {
+        separator();
+        if (needsQuotes(value)) {
+            row.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    row.append('"'); // Escape quotes by doubling them
+                }
+                row.append(c);
+            }
+            row.append('"');
+        } else {
+            row.append(value);
+        }
+        return this;
+    }
+
+    public CsvWriter field(long value) {
+        separator();
+        row.append(value);
+        return this;
+    }
+
+    // Fixed two-decimal formatting without going through String.format
+    public CsvWriter fieldTwoDecimals(double value) {
+        separator();
+        long hundredths = Math.round(value * 100);
+        if (hundredths < 0) {
+            row.append('-');
+            hundredths = -hundredths;
+        }
+        long fraction = hundredths % 100;
+        row.append(hundredths / 100).append('.');
+        if (fraction < 10) {
+            row.append('0');
+        }
+        row.append(fraction);
+        return this;
+    }
+
+    public void endRow() throws IOException {
+        row.append("\r\n");
+        out.append(row);
+        row.setLength(0);
+        firstField = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void separator() {
+        if (!firstField) {
+            row.append(',');
+        }
+        firstField = false;
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,127 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Admin view of the metrics registry, refreshed every second while open.
+public class DiagnosticsFrame extends JFrame {
+    private static final int REFRESH_MS = 1000;
+    private static final String[] COLUMNS = {"Metric", "Type", "Count / Value", "Mean ms", "p50 ms", "p99 ms", "Max ms"};
+
+    private final MetricsTableModel tableModel = new MetricsTableModel();
+    private final JTextArea jsonArea = new JTextArea();
+    private final Timer refreshTimer;
+
+    public DiagnosticsFrame() {
+        super("Diagnostics");
+        setSize(800, 500);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        JTable table = new JTable(tableModel);
+        table.setAutoCreateRowSorter(true);
+        jsonArea.setEditable(false);
+        jsonArea.setLineWrap(true);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Metrics", new JScrollPane(table));
+        tabs.addTab("JSON", new JScrollPane(jsonArea));
+
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            Metrics.reset(); // Counters and timers start over, gauges are live anyway
+            refresh();
+        });
+        JButton copyButton = new JButton("Copy JSON");
+        copyButton.addActionListener(e ->
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(Metrics.toJson()), null));
+
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(resetButton);
+        buttonPanel.add(copyButton);
+
+        add(tabs, BorderLayout.CENTER);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(REFRESH_MS, e -> refresh());
+        refresh();
+        refreshTimer.start();
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refreshTimer.stop(); // Nothing to refresh once the window is gone
+            }
+        });
+
+        setLocationRelativeTo(null);
+        setVisible(true);
+    }
+
+    private void refresh() {
+        tableModel.setSamples(Metrics.snapshot());
+        jsonArea.setText(Metrics.toJson());
+    }
+
+    private static class MetricsTableModel extends AbstractTableModel {
+        private List<Metrics.Sample> samples = new ArrayList<>();
+
+        private void setSamples(List<Metrics.Sample> samples) {
+            boolean sameRows = samples.size() == this.samples.size();
+            this.samples = samples;
+            if (sameRows && !samples.isEmpty()) {
+                fireTableRowsUpdated(0, samples.size() - 1); // Keeps the selection and sort order
+            } else {
+                fireTableDataChanged();
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return samples.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column < 2 ? String.class : column == 2 ? Long.class : Double.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Metrics.Sample sample = samples.get(row);
+            boolean timer = sample.getType().equals("timer");
+            switch (column) {
+                case 0:
+                    return sample.getName();
+                case 1:
+                    return sample.getType();
+                case 2:
+                    return sample.getCount();
+                case 3:
+                    return timer ? round(sample.getMean()) : null;
+                case 4:
+                    return timer ? round(sample.getP50()) : null;
+                case 5:
+                    return timer ? round(sample.getP99()) : null;
+                default:
+                    return timer ? round(sample.getMax()) : null;
+            }
+        }
+
+        private static Double round(double millis) {
+            return Math.round(millis * 1000) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+import java.util.*;
+
+// Typo-tolerant lookup over the words of titles and authors.
+// Words are indexed by padded trigrams; a query word only gets an edit-distance check against
+// words that share enough trigrams with it (an edit can destroy at most three), so Levenshtein
+// never runs against the whole catalog.
+public class FuzzyIndex {
+    private final Map<String, Map<GeneralBook, Integer>> wordBooks = new HashMap<>(); // word -> books using it
+    private final Map<String, Set<String>> gramWords = new HashMap<>(); // trigram -> words
+    private final Map<GeneralBook, List<String>> bookWords = new IdentityHashMap<>(); // For removal
+
+    public synchronized void add(GeneralBook book) {
+        List<String> words = new ArrayList<>(SearchIndex.tokenize(book.getTitle()));
+        words.addAll(SearchIndex.tokenize(book.getAuthor()));
+        bookWords.put(book, words);
+        for (String word : words) {
+            Map<GeneralBook, Integer> books = wordBooks.get(word);
+            if (books == null) {
+                books = new IdentityHashMap<>();
+                wordBooks.put(word, books);
+                for (String gram : trigrams(word)) {
+                    gramWords.computeIfAbsent(gram, g -> new HashSet<>()).add(word);
+                }
+            }
+            books.merge(book, 1, Integer::sum);
+        }
+    }
+
+    public synchronized void remove(GeneralBook book) {
+        List<String> words = bookWords.remove(book);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            Map<GeneralBook, Integer> books = wordBooks.get(word);
+            if (books == null || books.remove(book) == null) {
+                continue; // Repeated word already handled
+            }
+            if (books.isEmpty()) {
+                wordBooks.remove(word);
+                for (String gram : trigrams(word)) {
+                    Set<String> sharing = gramWords.get(gram);
+                    sharing.remove(word);
+                    if (sharing.isEmpty()) {
+                        gramWords.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    // Books whose title or author words are all within a small edit distance of the query words,
+    // closest matches first
+    public synchronized List<GeneralBook> search(String query, int limit) {
+        List<String> terms = SearchIndex.tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<GeneralBook, Integer> result = null; // Book -> summed edit distance
+        for (String term : terms) {
+            Map<GeneralBook, Integer> distances = new IdentityHashMap<>();
+            int maxDistance = maxDistance(term);
+            for (Map.Entry<String, Integer> match : matchWords(term, maxDistance).entrySet()) {
+                for (GeneralBook book : wordBooks.get(match.getKey()).keySet()) {
+                    distances.merge(book, match.getValue(), Math::min);
+                }
+            }
+            if (result == null) {
+                result = distances;
+            } else {
+                Map<GeneralBook, Integer> next = distances;
+                result.entrySet().removeIf(entry -> {
+                    Integer distance = next.get(entry.getKey());
+                    if (distance == null) {
+                        return true; // AND semantics across query words
+                    }
+                    entry.setValue(entry.getValue() + distance);
+                    return false;
+                });
+            }
+            if (result.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        List<Map.Entry<GeneralBook, Integer>> ranked = new ArrayList<>(result.entrySet());
+        ranked.sort(Map.Entry.comparingByValue());
+        List<GeneralBook> books = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            books.add(ranked.get(i).getKey());
+        }
+        return books;
+    }
+
+    // Short words must match exactly; longer words tolerate one or two edits
+    public static int maxDistance(String term) {
+        return term.length() <= 3 ? 0 : term.length() <= 7 ? 1 : 2;
+    }
+
+    private Map<String, Integer> matchWords(String term, int maxDistance) {
+        Map<String, Integer> matches = new HashMap<>();
+        if (maxDistance == 0) {
+            if (wordBooks.containsKey(term)) {
+                matches.put(term, 0);
+            }
+            return matches;
+        }
+
+        // Count shared trigrams per candidate word
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : trigrams(term)) {
+            Set<String> words = gramWords.get(gram);
+            if (words != null) {
+                for (String word : words) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            String word = candidate.getKey();
+            if (Math.abs(word.length() - term.length()) > maxDistance) {
+                continue;
+            }
+            int required = Math.max(word.length(), term.length()) - 3 * maxDistance; // Count filter
+            if (candidate.getValue() < required) {
+                continue;
+            }
+            int distance = boundedLevenshtein(term, word, maxDistance);
+            if (distance <= maxDistance) {
+                matches.put(word, distance);
+            }
+        }
+        return matches;
+    }
+
+    // Padded so that word boundaries count: "iliad" -> $il, ili, lia, iad, ad$
+    private static List<String> trigrams(String word) {
+        String padded = "$" + word + "$";
+        List<String> grams = new ArrayList<>(word.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Returns maxDistance + 1 as soon as the distance is known to exceed maxDistance
+    private static int boundedLevenshtein(String a, String b, int maxDistance) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
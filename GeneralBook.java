@@ -1,76 +1,134 @@
-import java.util.*;
-
-public class GeneralBook {
-    private String title;
-    private String author;
-    private double averageRating;
-    private int ratingCount;
-    private List<String> reviews;
-
-    public GeneralBook(String title, String author) {
-        if (title != null) {
-            this.title = title;
-        } else {
-            this.title = "Unknown";
-        }
-        if (author != null) {
-            this.author = author;
-        } else {
-            this.author = "Unknown";
-        }
-        this.averageRating = 0;
-        this.ratingCount = 0;
-        this.reviews = new ArrayList<>();
-    }
-
-    // Getters 
-    public String getTitle() {
-        return title;
-    }
-
-    public String getAuthor() {
-        return author;
-    }
-
-    public double getAverageRating() {
-        if (ratingCount > 0) {
-            return averageRating;
-        } else {
-            return -1; // -1 for "No rating"
-        }
-    }
-
-    public int getRatingCount() {
-        return ratingCount;
-    }
-
-    public List<String> getReviews() {
-        return new ArrayList<>(reviews); 
-    }
-
-    //Review adding
-    public void addReview(String review) {
-        if (review != null && !review.isEmpty()) {
-            reviews.add(review);
-        }
-    }
-
-    //Rating adding
-    public void addRating(double rating) {
-        averageRating = (averageRating * ratingCount + rating) / (++ratingCount);
-    }
-
-    public void setTitle(String title) {
-        this.title = title;
-    }
-
-    public void setAuthor(String author) {
-        this.author = author;
-    }
-
-    public void setRatingCount(int count) {
-        if (count >= 0) {
-            this.ratingCount = count;
-        }
-    }
-}
+// Fields are volatile because catalog readers do not lock; only the database's writer mutates them
+public class GeneralBook {
+    private volatile String title;
+    private volatile String author;
+    private volatile RatingStore ratings; // Shared store of the owning database, or a private one-slot store
+    private volatile int ratingSlot;
+    private volatile long reviewHead; // Offset of the newest review in the review log
+    private volatile int reviewCount;
+
+    public GeneralBook(String title, String author) {
+        if (title != null) {
+            this.title = title;
+        } else {
+            this.title = "Unknown";
+        }
+        if (author != null) {
+            this.author = author;
+        } else {
+            this.author = "Unknown";
+        }
+        this.ratingSlot = -1; // No slot until the first rating or until a database adopts the book
+        this.reviewHead = ReviewLog.NO_REVIEW;
+        this.reviewCount = 0;
+    }
+
+    // Getters 
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public double getAverageRating() {
+        int ratingCount = getRatingCount();
+        if (ratingCount > 0) {
+            return ratings.getSumTenths(ratingSlot) / (10.0 * ratingCount); // Computed on demand, never drifts
+        } else {
+            return -1; // -1 for "No rating"
+        }
+    }
+
+    public int getRatingCount() {
+        return ratingSlot < 0 ? 0 : ratings.getCount(ratingSlot);
+    }
+
+    public long getRatingSumTenths() {
+        return ratingSlot < 0 ? 0 : ratings.getSumTenths(ratingSlot);
+    }
+
+    // Number of ratings that round to the given star (1-5)
+    public int getStarCount(int star) {
+        return ratingSlot < 0 ? 0 : ratings.getStarCount(ratingSlot, star);
+    }
+
+    public int[] getRatingHistogram() {
+        return ratingSlot < 0 ? new int[RatingStore.STARS] : ratings.getHistogram(ratingSlot);
+    }
+
+    public long getReviewHead() {
+        return reviewHead;
+    }
+
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    // Review text lives in the review log; the book only tracks the newest entry of its chain
+    public void linkReview(long offset) {
+        reviewHead = offset;
+        reviewCount++;
+    }
+
+    public void restoreReviews(long head, int count) {
+        if (count > 0 && head != ReviewLog.NO_REVIEW) {
+            this.reviewHead = head;
+            this.reviewCount = count;
+        }
+    }
+
+    //Rating adding
+    public void addRating(double rating) {
+        ensureRatingSlot();
+        ratings.add(ratingSlot, rating);
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    // Restores an aggregate exactly as it was saved, without replaying individual ratings
+    public void restoreRating(long ratingSumTenths, int ratingCount, int[] stars) {
+        ensureRatingSlot();
+        ratings.restore(ratingSlot, ratingSumTenths, ratingCount, stars);
+    }
+
+    // Moves this book's aggregate into a database-wide store
+    public void attachRatings(RatingStore store) {
+        if (ratings == store) {
+            return; // Already adopted, e.g. straight from a snapshot
+        }
+        int slot = store.allocate();
+        if (ratingSlot >= 0) {
+            store.restore(slot, getRatingSumTenths(), getRatingCount(), getRatingHistogram());
+        }
+        ratings = store; // Store first: the old slot (0 or -1) is valid in any store
+        ratingSlot = slot;
+    }
+
+    // Gives the slot back to the database store, keeping the values in a private store
+    public void detachRatings() {
+        if (ratingSlot < 0) {
+            return;
+        }
+        RatingStore own = new RatingStore(1);
+        int slot = own.allocate();
+        own.restore(slot, getRatingSumTenths(), getRatingCount(), getRatingHistogram());
+        ratings.release(ratingSlot);
+        ratingSlot = slot; // Slot first: slot 0 exists in the old store too, so readers never overrun
+        ratings = own;
+    }
+
+    private void ensureRatingSlot() {
+        if (ratingSlot < 0) {
+            ratings = new RatingStore(1);
+            ratingSlot = ratings.allocate();
+        }
+    }
+}
@@ -1,131 +1,969 @@
-import java.io.*;
-import java.util.*;
-
-public class GeneralDatabase {
-    private List<GeneralBook> books;
-    private static final String GENERAL_CSV = "general.csv";
-
-    public GeneralDatabase() {
-        books = new ArrayList<>();
-        loadFromCSV(); // Load initial books from CSV
-    }
-
-    public List<GeneralBook> getBooks() {
-        return new ArrayList<>(books); // Return a copy for encapsulation
-    }
-
-    public void addBook(GeneralBook book) {
-        books.add(book); // Add the book to the list
-        saveToCSV(); // Save the updated list to the CSV file
-    }
-
-    public boolean removeBookByTitle(String title) {
-        boolean removed = books.removeIf(book -> book.getTitle().equalsIgnoreCase(title)); // Case-insensitive removal
-        if (removed) {
-            saveToCSV(); // Save changes if removal is successful
-        }
-        return removed; // Return whether removal was successful
-    }
-
-    public void updateBookRating(String title, double rating) {
-        for (GeneralBook book : books) {
-            if (book.getTitle().equalsIgnoreCase(title)) { // Find the book by title
-                book.addRating(rating); // Update the rating
-                saveToCSV(); // Save the updated list to the CSV file
-                break; // Once found, we can exit the loop
-            }
-        }
-    }
-
-    public void addReviewToGeneralBook(String title, String review) {
-        for (GeneralBook book : books) {
-            if (book.getTitle().equalsIgnoreCase(title)) { // Find the book by title
-                book.addReview(review); // Add the review
-                saveToCSV(); // Save the updated list to the CSV file
-                break;
-            }
-        }
-    }
-
-    public void saveToCSV() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(GENERAL_CSV))) {
-            writer.write("Title,Author,Average Rating,Rating Count,Reviews"); // CSV header
-            writer.newLine(); // New line after the header
-
-            for (GeneralBook book : books) {
-                double averageRating = book.getAverageRating();
-                int ratingCount = book.getRatingCount();
-
-                String ratingDisplay = averageRating < 0 
-                    ? "No rating" 
-                    : String.format("%.2f", averageRating); // Format average rating
-
-                String reviewsDisplay = book.getReviews().isEmpty() 
-                    ? "No reviews" 
-                    : String.join(", ", book.getReviews()); // Format reviews
-
-                writer.write(String.format("%s,%s,%s,%d,%s", 
-                    book.getTitle(), 
-                    book.getAuthor(), 
-                    ratingDisplay, 
-                    ratingCount, 
-                    reviewsDisplay
-                ));
-
-                writer.newLine(); // Move to the next line
-            }
-        } catch (IOException e) {
-            e.printStackTrace(); // Handle file write error
-        }
-    }
-
-    public void loadFromCSV() {
-        books.clear(); // Clear existing books
-        try (BufferedReader br = new BufferedReader(new FileReader(GENERAL_CSV))) {
-            String line;
-            boolean isHeader = true;
-
-            while ((line = br.readLine()) != null) {
-                if (isHeader) {
-                    isHeader = false; // Skip the header
-                    continue;
-                }
-
-                String[] values = line.split(","); // Split CSV row into values
-                if (values.length >= 2) {
-                    String title = values[0];
-                    String author = values[1];
-
-                    GeneralBook book = new GeneralBook(title, author); // Create new book
-
-                    // Handle potential additional fields (like rating and reviews)
-                    if (values.length >= 3) {
-                        try {
-                            double averageRating = Double.parseDouble(values[2]); // Parse average rating
-                            int ratingCount = (values.length >= 4) 
-                                ? Integer.parseInt(values[3]) // Get rating count if available
-                                : 0;
-                            book.setRatingCount(ratingCount);
-                            if (averageRating >= 0) {
-                                book.addRating(averageRating);
-                            }
-                        } catch (NumberFormatException e) {
-                            // Ignore invalid values for rating
-                        }
-                    }
-
-                    if (values.length >= 5) { // Parse reviews if available
-                        String[] reviews = values[4].split(", ");
-                        for (String review : reviews) {
-                            book.addReview(review);
-                        }
-                    }
-
-                    books.add(book); // Add the book to the list
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace(); // Handle file read error
-        }
-    }
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Readers never lock: they see the latest published CatalogVersion and the concurrent title index.
+// Mutations are serialized on the database lock and publish a new version when they finish. It is
+// a ReentrantLock rather than the monitor so a virtual thread writing files under it keeps its carrier.
+// Processes sharing the directory also serialize on general.lock: before each write the journal
+// records other processes appended are replayed, so their ratings and reviews are merged rather
+// than overwritten, and a newer journal generation means another process checkpointed.
+public class GeneralDatabase {
+    private static final LatencyHistogram LOAD_TIMER = Metrics.timer("catalog.load");
+    private static final LatencyHistogram CHECKPOINT_TIMER = Metrics.timer("catalog.checkpoint");
+    private static final LatencyHistogram SEARCH_TIMER = Metrics.timer("catalog.search");
+    private static final LatencyHistogram LOCK_WAIT_TIMER = Metrics.timer("catalog.lock.wait");
+
+    private final File directory; // Holds the catalog files; null for the working directory
+    private volatile CatalogVersion books; // Immutable, replaced by every structural change
+    private final Map<String, GeneralBook> titleIndex; // Case-folded title -> first book with that title
+    private RatingStore ratingStore; // Rating aggregates of every book, indexed by rating slot
+    private CatalogJournal journal;
+    private CatalogLock lock; // Cross-process write lock on the catalog directory
+    private final ReentrantLock databaseLock = new ReentrantLock(); // Threads of this process; taken before lock
+    private long journalGeneration; // Journal generation the in-memory catalog is based on
+    private long journalPosition; // Journal offset up to which records have been applied
+    private ReviewLog reviewLog; // Review text, chained per book
+    private volatile SearchIndex searchIndex; // Built on the first search, then maintained incrementally
+    private volatile FuzzyIndex fuzzyIndex; // Built on the first fuzzy search
+    private volatile CompletionTrie titleCompletions; // Built on the first suggestion, ranked by rating count
+    private volatile CompletionTrie authorCompletions;
+    private final AtomicBoolean completionsRequested = new AtomicBoolean(); // A background build was started
+    private volatile Leaderboards leaderboards; // Built on the first leaderboard read, then kept sorted
+    private static final String GENERAL_CSV = "general.csv";
+    private static final String NO_REVIEWS = "No reviews";
+    private static final String SNAPSHOT_FILE = "general.snapshot";
+    private static final String JOURNAL_FILE = "general.journal";
+    private static final String REVIEW_LOG_FILE = "reviews.log";
+    private static final String LOCK_FILE = "general.lock";
+    private static final String GENERATION_HEADER = "Journal Generation "; // Last header cell: the journal generation the CSV includes
+    private boolean migratedReviews; // Set while loading when inline reviews moved into the review log
+    private static final long CHECKPOINT_THRESHOLD = 1024 * 1024; // Compact the journal past 1 MB
+
+    public GeneralDatabase() {
+        this(null);
+    }
+
+    // A catalog kept in another directory, e.g. generated data for benchmarks
+    public GeneralDatabase(File directory) {
+        this.directory = directory;
+        books = CatalogVersion.empty();
+        titleIndex = new ConcurrentHashMap<>();
+        ratingStore = new RatingStore(1024);
+        journal = new CatalogJournal(new File(directory, JOURNAL_FILE));
+        lock = new CatalogLock(new File(directory, LOCK_FILE));
+        reviewLog = new ReviewLog(new File(directory, REVIEW_LOG_FILE));
+        loadFromCSV(); // Load initial books from CSV
+        Metrics.gauge("catalog.books", () -> books.size());
+        Metrics.gauge("catalog.journal.bytes", () -> journal.size());
+    }
+
+    // The current version of the catalog; immutable, so callers can keep it without copying
+    public List<GeneralBook> getBooks() {
+        return books;
+    }
+
+    // Changes whenever books are added, removed or edited
+    public long getVersion() {
+        return books.getNumber();
+    }
+
+    public GeneralBook findByTitle(String title) {
+        return title == null ? null : titleIndex.get(normalizeTitle(title));
+    }
+
+    public void addBook(GeneralBook book) {
+        beginWrite();
+        try {
+            applyAdd(book);
+            journal.append(CatalogJournal.OP_ADD, book.getTitle(), book.getAuthor()); // Log instead of rewriting the CSV
+            checkpointIfNeeded();
+        } finally {
+            endWrite();
+        }
+    }
+
+    // Adds a batch under one lock and one journal flush; returns the books skipped as duplicates
+    public List<GeneralBook> addBooks(List<GeneralBook> batch) {
+        List<GeneralBook> duplicates = new ArrayList<>();
+        beginWrite();
+        try {
+            List<String[]> rows = new ArrayList<>(batch.size());
+            for (GeneralBook book : batch) {
+                if (findByTitle(book.getTitle()) != null) {
+                    duplicates.add(book); // Already in the catalog, perhaps added by another process
+                    continue;
+                }
+                applyAdd(book);
+                rows.add(new String[] {book.getTitle(), book.getAuthor()});
+            }
+            appendBatch(CatalogJournal.OP_ADD, rows);
+        } finally {
+            endWrite();
+        }
+        return duplicates;
+    }
+
+    public boolean removeBookByTitle(String title) {
+        beginWrite();
+        try {
+            boolean removed = applyRemove(title);
+            if (removed) {
+                journal.append(CatalogJournal.OP_REMOVE, title); // Log changes if removal is successful
+                checkpointIfNeeded();
+            }
+            return removed; // Return whether removal was successful
+        } finally {
+            endWrite();
+        }
+    }
+
+    // Removes every book with one of the titles as a single journal record; returns the number removed
+    public int removeBooksByTitle(Collection<String> titles) {
+        beginWrite();
+        try {
+            Set<String> distinct = new LinkedHashSet<>();
+            for (String title : titles) {
+                distinct.add(normalizeTitle(title));
+            }
+            int removed = applyRemoveAll(distinct);
+            if (removed > 0) {
+                List<String[]> rows = new ArrayList<>(distinct.size());
+                for (String key : distinct) {
+                    rows.add(new String[] {key}); // Removal is case-insensitive, the folded title is enough
+                }
+                appendBatch(CatalogJournal.OP_REMOVE, rows);
+            }
+            return removed;
+        } finally {
+            endWrite();
+        }
+    }
+
+    public void updateBookRating(String title, double rating) {
+        if (!(rating >= 1 && rating <= 5)) {
+            return; // NaN or out of range would spoil the average on every replay
+        }
+        beginWrite();
+        try {
+            if (applyRating(title, rating)) { // A delta, so it merges with other processes' ratings
+                journal.append(CatalogJournal.OP_RATE, title, Double.toString(rating)); // Exact round-trip of the rating
+                checkpointIfNeeded();
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    public void addReviewToGeneralBook(String title, String review) {
+        if (review == null || review.isEmpty()) {
+            return;
+        }
+        beginWrite();
+        try {
+            GeneralBook book = findByTitle(title);
+            if (book == null) {
+                return;
+            }
+            long offset = appendReview(book, review); // Chained behind reviews other processes added
+            if (offset != ReviewLog.NO_REVIEW) {
+                journal.append(CatalogJournal.OP_REVIEW, title, Long.toString(offset)); // Only the handle is journaled
+                checkpointIfNeeded();
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    // Picks up changes other processes made to the shared catalog since the last write
+    public void refresh() {
+        beginWrite();
+        endWrite();
+    }
+
+    // Books matching every term of the query, best matches first
+    public List<GeneralBook> search(String query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    public List<GeneralBook> search(String query, int limit) {
+        long start = System.nanoTime();
+        SearchIndex index = searchIndex;
+        if (index == null) {
+            index = buildSearchIndex();
+        }
+        List<GeneralBook> matches = index.search(query, limit);
+        SEARCH_TIMER.record(System.nanoTime() - start);
+        return matches;
+    }
+
+    // Typo-tolerant search over title and author words, closest matches first
+    public List<GeneralBook> fuzzySearch(String query, int limit) {
+        FuzzyIndex index = fuzzyIndex;
+        if (index == null) {
+            index = buildFuzzyIndex();
+        }
+        return index.search(query, limit);
+    }
+
+    // Top-N rankings by average rating, rating count and review count, read without sorting
+    public Leaderboards getLeaderboards() {
+        Leaderboards boards = leaderboards;
+        return boards != null ? boards : buildLeaderboards();
+    }
+
+    private Leaderboards buildLeaderboards() {
+        databaseLock.lock();
+        try {
+            if (leaderboards == null) {
+                Leaderboards boards = new Leaderboards(Leaderboards.DEFAULT_MIN_RATINGS);
+                for (GeneralBook book : books) {
+                    boards.add(book);
+                }
+                leaderboards = boards;
+            }
+            return leaderboards;
+        } finally {
+            databaseLock.unlock();
+        }
+    }
+
+    // Built under the write lock so no mutation slips between the scan and the hooks
+    private FuzzyIndex buildFuzzyIndex() {
+        databaseLock.lock();
+        try {
+            if (fuzzyIndex == null) {
+                FuzzyIndex index = new FuzzyIndex();
+                for (GeneralBook book : books) {
+                    index.add(book);
+                }
+                fuzzyIndex = index;
+            }
+            return fuzzyIndex;
+        } finally {
+            databaseLock.unlock();
+        }
+    }
+
+    // Starts building the completion tries on a background thread, e.g. when a window with
+    // type-ahead fields opens, so no keystroke on the EDT ever waits for them
+    public void prepareCompletions() {
+        if (titleCompletions == null && completionsRequested.compareAndSet(false, true)) {
+            Thread thread = new Thread(this::buildCompletions, "completions");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    // Type-ahead completions for a typed title prefix, most rated first; nothing until the tries
+    // are built, which this starts in the background if needed
+    public List<String> suggestTitles(String prefix, int limit) {
+        CompletionTrie titles = titleCompletions;
+        if (titles == null) {
+            prepareCompletions();
+            return new ArrayList<>();
+        }
+        return titles.suggest(prefix, limit);
+    }
+
+    public List<String> suggestAuthors(String prefix, int limit) {
+        CompletionTrie titles = titleCompletions; // Published last, so the author trie is there too
+        if (titles == null) {
+            prepareCompletions();
+            return new ArrayList<>();
+        }
+        return authorCompletions.suggest(prefix, limit);
+    }
+
+    private CompletionTrie[] buildCompletions() {
+        databaseLock.lock();
+        try {
+            if (titleCompletions != null) {
+                return new CompletionTrie[] {titleCompletions, authorCompletions};
+            }
+            CompletionTrie titles = new CompletionTrie();
+            CompletionTrie authors = new CompletionTrie();
+            for (GeneralBook book : books) {
+                titles.add(book.getTitle(), book.getRatingCount());
+                authors.add(book.getAuthor(), book.getRatingCount());
+            }
+            authorCompletions = authors;
+            titleCompletions = titles; // Published last, readers test this one
+            return new CompletionTrie[] {titles, authors};
+        } finally {
+            databaseLock.unlock();
+        }
+    }
+
+    // Indexes titles, authors and every review chain in one pass
+    private SearchIndex buildSearchIndex() {
+        databaseLock.lock();
+        try {
+            if (searchIndex != null) {
+                return searchIndex;
+            }
+            SearchIndex index = new SearchIndex();
+            for (GeneralBook book : books) {
+                index.add(book);
+                if (book.getReviewCount() > 0) {
+                    for (String review : getReviews(book, 0, book.getReviewCount())) {
+                        index.addText(book, review, SearchIndex.REVIEW_WEIGHT);
+                    }
+                }
+            }
+            searchIndex = index;
+            return index;
+        } finally {
+            databaseLock.unlock();
+        }
+    }
+
+    // One page of a book's reviews, newest first
+    public List<String> getReviews(GeneralBook book, int pageIndex, int pageSize) {
+        try {
+            return reviewLog.readPage(book.getReviewHead(), pageIndex, pageSize);
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle review log read error
+            return new ArrayList<>();
+        }
+    }
+
+    // Title and author edits must go through here so they reach the journal
+    public void editBook(GeneralBook book, String newTitle, String newAuthor) {
+        databaseLock.lock(); // Already held when the title is read, so no other edit slips in before beginWrite
+        try {
+            String oldTitle = book.getTitle();
+            if (beginWrite()) {
+                book = findByTitle(oldTitle); // The catalog was reloaded, edit the current instance
+            }
+            try {
+                if (book == null) {
+                    return; // Removed by another process
+                }
+                String position = Integer.toString(positionsOf(Collections.singletonList(book))[0]);
+                applyEdit(book, newTitle, newAuthor);
+                journal.append(CatalogJournal.OP_EDIT, oldTitle, newTitle, newAuthor, position);
+                checkpointIfNeeded();
+            } finally {
+                endWrite();
+            }
+        } finally {
+            databaseLock.unlock();
+        }
+    }
+
+    // Sets the author of every book in one transaction; returns the books actually changed
+    public List<GeneralBook> reassignAuthor(Collection<GeneralBook> selection, String newAuthor) {
+        return editAll(selection, book -> book.getAuthor().equals(newAuthor) ? null : new String[] {book.getTitle(), newAuthor});
+    }
+
+    // Literal, case-sensitive replacement in the titles of the selection, applied in one transaction.
+    // Titles the replacement would leave blank are skipped; returns the books actually changed.
+    public List<GeneralBook> replaceInTitles(Collection<GeneralBook> selection, String find, String replacement) {
+        if (find == null || find.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return editAll(selection, book -> {
+            String newTitle = book.getTitle().replace(find, replacement);
+            return newTitle.equals(book.getTitle()) || newTitle.trim().isEmpty() ? null : new String[] {newTitle, book.getAuthor()};
+        });
+    }
+
+    // The editor maps a book to {new title, new author}, or null to leave it alone
+    private List<GeneralBook> editAll(Collection<GeneralBook> selection, Function<GeneralBook, String[]> editor) {
+        List<GeneralBook> targets = new ArrayList<>();
+        List<String[]> edits = new ArrayList<>();
+        boolean reloaded = beginWrite();
+        try {
+            Set<GeneralBook> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (GeneralBook book : selection) {
+                GeneralBook current = findByTitle(book.getTitle());
+                if (current == null) {
+                    continue; // Removed, perhaps by another process
+                }
+                if (!reloaded) {
+                    current = book; // Edit the selected instance even if it is a duplicate title
+                }
+                String[] edit = seen.add(current) ? editor.apply(current) : null;
+                if (edit != null) {
+                    targets.add(current);
+                    edits.add(new String[] {current.getTitle(), edit[0], edit[1], null});
+                }
+            }
+            int[] positions = positionsOf(targets);
+            for (int i = 0; i < edits.size(); i++) {
+                edits.get(i)[3] = Integer.toString(positions[i]);
+            }
+            applyEdits(targets, edits);
+            appendBatch(CatalogJournal.OP_EDIT, edits);
+        } finally {
+            endWrite();
+        }
+        return targets;
+    }
+
+    // Where each book sits in the current version, -1 if it is not there. Every process replays the
+    // same records onto the same checkpoint, so a position names one book even among duplicate titles.
+    private int[] positionsOf(List<GeneralBook> targets) {
+        Map<GeneralBook, Integer> wanted = new IdentityHashMap<>();
+        for (int i = 0; i < targets.size(); i++) {
+            wanted.put(targets.get(i), i);
+        }
+        int[] positions = new int[targets.size()];
+        Arrays.fill(positions, -1);
+        int position = 0;
+        for (GeneralBook book : books) {
+            Integer target = wanted.get(book);
+            if (target != null) {
+                positions[target] = position;
+            }
+            position++;
+        }
+        return positions;
+    }
+
+    // The book an edit record targets: the one at the journaled position if it still has the old
+    // title. Records from before positions were journaled fall back to the first book with the title.
+    private GeneralBook resolveEdited(String oldTitle, String position) {
+        if (position == null) {
+            return findByTitle(oldTitle);
+        }
+        try {
+            int index = Integer.parseInt(position);
+            if (index >= 0 && index < books.size() && books.get(index).getTitle().equals(oldTitle)) {
+                return books.get(index);
+            }
+        } catch (NumberFormatException e) {
+            // Ignore an invalid position
+        }
+        return null; // Never guess between duplicates, the edit was meant for one particular book
+    }
+
+    // Takes the database lock, then the directory lock, and catches up with the shared journal;
+    // true if the catalog was reloaded
+    private boolean beginWrite() {
+        long start = System.nanoTime();
+        databaseLock.lock();
+        lock.lock();
+        LOCK_WAIT_TIMER.record(System.nanoTime() - start); // Time spent behind other processes' writes
+        boolean reloaded = journal.getGeneration() != journalGeneration;
+        if (reloaded) {
+            loadCatalog(); // Another process checkpointed, our journal offset is meaningless now
+        } else {
+            List<CatalogJournal.Entry> entries = new ArrayList<>();
+            journalPosition = journal.readFrom(journalPosition, entries);
+            replay(entries); // Records other processes appended since our last write
+        }
+        if (journalPosition < journal.size()) {
+            // A process died halfway through a record; every reader stops there, so records
+            // appended behind it would never be replayed
+            journal.truncate(journalPosition);
+        }
+        return reloaded;
+    }
+
+    private void endWrite() {
+        journalPosition = journal.readFrom(journalPosition, null); // Just past our own records, which are already applied
+        lock.unlock();
+        databaseLock.unlock();
+    }
+
+    private void applyAdd(GeneralBook book) {
+        book.attachRatings(ratingStore);
+        books = books.append(book); // Publish a version that includes the book
+        titleIndex.putIfAbsent(normalizeTitle(book.getTitle()), book); // Duplicates keep the first entry
+        if (searchIndex != null) {
+            searchIndex.add(book);
+        }
+        if (fuzzyIndex != null) {
+            fuzzyIndex.add(book);
+        }
+        if (titleCompletions != null) {
+            titleCompletions.add(book.getTitle(), book.getRatingCount());
+            authorCompletions.add(book.getAuthor(), book.getRatingCount());
+        }
+        if (leaderboards != null) {
+            leaderboards.add(book);
+        }
+    }
+
+    private boolean applyRemove(String title) {
+        return applyRemoveAll(Collections.singleton(normalizeTitle(title))) > 0;
+    }
+
+    // Takes case-folded titles; one pass over the catalog and one new version however many are removed
+    private int applyRemoveAll(Set<String> keys) {
+        Set<String> indexed = new HashSet<>();
+        for (String key : keys) {
+            if (titleIndex.remove(key) != null) {
+                indexed.add(key);
+            }
+        }
+        if (indexed.isEmpty()) {
+            return 0; // Nothing indexed under these titles, skip the list scan
+        }
+        Set<GeneralBook> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (GeneralBook book : books) {
+            if (!indexed.contains(normalizeTitle(book.getTitle()))) { // Case-insensitive removal
+                continue;
+            }
+            removed.add(book);
+            book.detachRatings(); // Free the slot for the next added book
+            if (searchIndex != null) {
+                searchIndex.remove(book);
+            }
+            if (fuzzyIndex != null) {
+                fuzzyIndex.remove(book);
+            }
+            if (titleCompletions != null) {
+                titleCompletions.remove(book.getTitle(), book.getRatingCount());
+                authorCompletions.remove(book.getAuthor(), book.getRatingCount());
+            }
+            if (leaderboards != null) {
+                leaderboards.remove(book);
+            }
+        }
+        books = books.without(removed);
+        return removed.size();
+    }
+
+    private boolean applyRating(String title, double rating) {
+        GeneralBook book = findByTitle(title);
+        if (book == null) {
+            return false;
+        }
+        book.addRating(rating); // Update the rating
+        if (titleCompletions != null) {
+            titleCompletions.adjustWeight(book.getTitle(), 1); // One more rating moves it up the suggestions
+            authorCompletions.adjustWeight(book.getAuthor(), 1);
+        }
+        if (leaderboards != null) {
+            leaderboards.update(book); // O(log n) move on each board
+        }
+        return true;
+    }
+
+    private long appendReview(GeneralBook book, String review) {
+        try {
+            long offset = reviewLog.append(book.getReviewHead(), review);
+            book.linkReview(offset); // Add the review
+            if (searchIndex != null) {
+                searchIndex.addText(book, review, SearchIndex.REVIEW_WEIGHT);
+            }
+            if (leaderboards != null) {
+                leaderboards.update(book);
+            }
+            return offset;
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle review log write error
+            return ReviewLog.NO_REVIEW;
+        }
+    }
+
+    private void applyEdit(GeneralBook book, String newTitle, String newAuthor) {
+        applyEdits(Collections.singletonList(book), Collections.singletonList(new String[] {book.getTitle(), newTitle, newAuthor}));
+    }
+
+    // Books line up with rows of {old title, new title, new author, ...}; null books are skipped.
+    // Titles the batch vacates are handed to duplicates in one pass, and one version is published.
+    private void applyEdits(List<GeneralBook> targets, List<String[]> edits) {
+        Set<String> vacated = new HashSet<>();
+        for (int i = 0; i < edits.size(); i++) {
+            if (targets.get(i) != null) {
+                editInPlace(targets.get(i), edits.get(i)[1], edits.get(i)[2], vacated);
+            }
+        }
+        vacated.removeAll(titleIndex.keySet()); // Taken again by a later edit in the batch
+        if (!vacated.isEmpty()) {
+            for (GeneralBook other : books) {
+                String key = normalizeTitle(other.getTitle());
+                if (vacated.contains(key)) {
+                    titleIndex.putIfAbsent(key, other); // Promote a duplicate that still carries the old title
+                }
+            }
+        }
+        books = books.touch(); // Same rows, but readers can tell the catalog changed
+    }
+
+    private void editInPlace(GeneralBook book, String newTitle, String newAuthor, Set<String> vacated) {
+        String oldTitle = book.getTitle();
+        String oldAuthor = book.getAuthor();
+        String oldKey = normalizeTitle(oldTitle);
+        String newKey = normalizeTitle(newTitle);
+        if (fuzzyIndex != null) {
+            fuzzyIndex.remove(book); // Indexed words come from the old title and author
+        }
+        book.setTitle(newTitle);
+        book.setAuthor(newAuthor);
+        if (searchIndex != null) {
+            searchIndex.reindex(book, oldTitle, oldAuthor);
+        }
+        if (fuzzyIndex != null) {
+            fuzzyIndex.add(book);
+        }
+        if (titleCompletions != null) {
+            titleCompletions.remove(oldTitle, book.getRatingCount());
+            titleCompletions.add(newTitle, book.getRatingCount());
+            authorCompletions.remove(oldAuthor, book.getRatingCount());
+            authorCompletions.add(newAuthor, book.getRatingCount());
+        }
+
+        if (oldKey.equals(newKey)) {
+            return; // Author or case change only, the title index is unaffected
+        }
+        if (titleIndex.get(oldKey) == book) {
+            titleIndex.remove(oldKey);
+            vacated.add(oldKey);
+        }
+        titleIndex.putIfAbsent(newKey, book);
+    }
+
+    private static String normalizeTitle(String title) {
+        return title.toLowerCase(Locale.ROOT);
+    }
+
+    // A parsed CSV row plus review text from older files that still has to move into the review log
+    private static class ParsedRow {
+        private final GeneralBook book;
+        private String legacyReviews;
+
+        private ParsedRow(GeneralBook book) {
+            this.book = book;
+        }
+    }
+
+    // Maps one CSV row to a book; runs on parser threads so it must not touch shared state
+    private static ParsedRow parseRow(CsvReader.Row row) {
+        if (row.size() < 2) {
+            return null;
+        }
+        ParsedRow parsed = new ParsedRow(new GeneralBook(row.get(0), row.get(1))); // Create new book
+
+        // Handle potential additional fields (like rating and reviews)
+        if (row.size() >= 7) {
+            restoreExactRating(parsed.book, row); // Exact aggregate written by saveToCSV
+        } else if (row.size() >= 4) {
+            restoreLegacyRating(parsed.book, row);
+        }
+
+        if (row.size() >= 8) {
+            try {
+                parsed.book.restoreReviews(Long.parseLong(row.get(7)), Integer.parseInt(row.get(4))); // Review log handle
+            } catch (NumberFormatException e) {
+                // Ignore an invalid review handle
+            }
+        } else if (row.size() >= 5 && !row.get(4).equalsIgnoreCase(NO_REVIEWS)) {
+            parsed.legacyReviews = row.get(4); // Inline review text from older files
+        }
+        return parsed;
+    }
+
+    private static void restoreExactRating(GeneralBook book, CsvReader.Row row) {
+        try {
+            String[] parts = row.get(6).split("/");
+            int[] stars = new int[RatingStore.STARS];
+            for (int i = 0; i < stars.length && i < parts.length; i++) {
+                stars[i] = Integer.parseInt(parts[i]);
+            }
+            book.restoreRating(Long.parseLong(row.get(5)), Integer.parseInt(row.get(3)), stars);
+        } catch (NumberFormatException e) {
+            restoreLegacyRating(book, row); // Fall back to the rounded average
+        }
+    }
+
+    // Older files only kept a rounded average; rebuild the closest aggregate once
+    private static void restoreLegacyRating(GeneralBook book, CsvReader.Row row) {
+        try {
+            double averageRating = Double.parseDouble(row.get(2)); // Parse average rating
+            int ratingCount = Integer.parseInt(row.get(3));
+            if (averageRating >= 0 && ratingCount > 0) {
+                int[] stars = new int[RatingStore.STARS];
+                stars[RatingStore.starIndex(averageRating)] = ratingCount;
+                book.restoreRating(Math.round(averageRating * 10 * ratingCount), ratingCount, stars);
+            }
+        } catch (NumberFormatException e) {
+            // Ignore invalid values for rating
+        }
+    }
+
+    private void replayReview(String title, String handle) {
+        GeneralBook book = findByTitle(title);
+        if (book == null) {
+            return;
+        }
+        try {
+            book.linkReview(Long.parseLong(handle));
+            if (leaderboards != null) {
+                leaderboards.update(book);
+            }
+        } catch (NumberFormatException e) {
+            appendReview(book, handle); // Older journals carried the review text itself
+            migratedReviews = true;
+        }
+    }
+
+    // Replays journal records written after the last checkpoint
+    private void replay(List<CatalogJournal.Entry> entries) {
+        for (CatalogJournal.Entry entry : entries) {
+            switch (entry.getOp()) {
+                case CatalogJournal.OP_ADD:
+                    applyAdd(new GeneralBook(entry.getArg(0), entry.getArg(1)));
+                    break;
+                case CatalogJournal.OP_REMOVE:
+                    applyRemove(entry.getArg(0));
+                    break;
+                case CatalogJournal.OP_RATE:
+                    applyRating(entry.getArg(0), Double.parseDouble(entry.getArg(1)));
+                    break;
+                case CatalogJournal.OP_REVIEW:
+                    replayReview(entry.getArg(0), entry.getArg(1));
+                    break;
+                case CatalogJournal.OP_EDIT:
+                    GeneralBook edited = resolveEdited(entry.getArg(0), entry.getArgCount() > 3 ? entry.getArg(3) : null);
+                    if (edited != null) {
+                        applyEdit(edited, entry.getArg(1), entry.getArg(2));
+                    }
+                    break;
+                case CatalogJournal.OP_BATCH:
+                    replayBatch(entry.getBatchOp(), entry.getBatchRows());
+                    break;
+                default:
+                    break; // Unknown record types are skipped
+            }
+        }
+    }
+
+    private void replayBatch(byte op, List<String[]> rows) {
+        switch (op) {
+            case CatalogJournal.OP_ADD:
+                for (String[] row : rows) {
+                    applyAdd(new GeneralBook(row[0], row[1]));
+                }
+                break;
+            case CatalogJournal.OP_REMOVE:
+                Set<String> keys = new HashSet<>();
+                for (String[] row : rows) {
+                    keys.add(normalizeTitle(row[0]));
+                }
+                applyRemoveAll(keys);
+                break;
+            case CatalogJournal.OP_EDIT:
+                List<GeneralBook> targets = new ArrayList<>(rows.size());
+                for (String[] row : rows) {
+                    targets.add(resolveEdited(row[0], row.length > 3 ? row[3] : null)); // Resolved up front, as the original batch was
+                }
+                applyEdits(targets, rows);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // One record per batch, so another process never replays half of it
+    private void appendBatch(byte op, List<String[]> rows) {
+        if (!rows.isEmpty()) {
+            journal.appendAll(Collections.singletonList(CatalogJournal.Entry.batch(op, rows)));
+            checkpointIfNeeded();
+        }
+    }
+
+    private void checkpointIfNeeded() {
+        if (journal.size() > CHECKPOINT_THRESHOLD) {
+            writeCheckpoint(); // Fold the journal into a fresh checkpoint; already holding the lock
+        }
+    }
+
+    // Writes a full checkpoint of the catalog and truncates the journal it supersedes
+    public void saveToCSV() {
+        beginWrite(); // The checkpoint must include what other processes journaled
+        try {
+            writeCheckpoint();
+        } finally {
+            endWrite();
+        }
+    }
+
+    private void writeCheckpoint() {
+        LibraryEvents.CatalogCheckpoint event = new LibraryEvents.CatalogCheckpoint();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            writeCheckpointFiles();
+        } finally {
+            CHECKPOINT_TIMER.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                File csvFile = new File(directory, GENERAL_CSV);
+                event.file = csvFile.getPath();
+                event.books = books.size();
+                event.bytesWritten = csvFile.length();
+                event.commit();
+            }
+        }
+    }
+
+    private void writeCheckpointFiles() {
+        File tempFile = new File(directory, GENERAL_CSV + ".tmp");
+        long coveredGeneration = journal.getGeneration(); // Every record of this generation is in the checkpoint
+        try (CsvWriter writer = new CsvWriter(tempFile)) {
+            writer.field("Title").field("Author").field("Average Rating").field("Rating Count").field("Review Count")
+                  .field("Rating Sum (tenths)").field("Star Histogram").field("Review Head")
+                  .field(GENERATION_HEADER + coveredGeneration); // A crash before the journal reset must not replay it again
+            writer.endRow(); // CSV header
+
+            for (GeneralBook book : books) {
+                double averageRating = book.getAverageRating();
+
+                writer.field(book.getTitle()).field(book.getAuthor());
+                if (averageRating < 0) {
+                    writer.field("No rating");
+                } else {
+                    writer.fieldTwoDecimals(averageRating); // Format average rating
+                }
+                writer.field(book.getRatingCount());
+                writer.field(book.getReviewCount()); // Review text stays in the review log
+                writer.field(book.getRatingSumTenths()); // Exact aggregate so restarts do not drift
+                writer.field(formatHistogram(book.getRatingHistogram()));
+                writer.field(book.getReviewHead());
+                writer.endRow();
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle file write error
+            return; // Keep the journal, the old checkpoint is still valid
+        }
+
+        try {
+            // Swap in the new checkpoint atomically so readers never see a half-written CSV
+            Files.move(tempFile.toPath(), new File(directory, GENERAL_CSV).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journalGeneration = journal.reset(); // Tells other processes to reload from the new CSV
+            journalPosition = journal.size();
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle checkpoint swap error
+            return;
+        }
+
+        CatalogSnapshot.write(new File(directory, SNAPSHOT_FILE), new File(directory, GENERAL_CSV), books, coveredGeneration); // Fast path for the next startup
+    }
+
+    // The generation stamped into the header by writeCheckpointFiles; -1 for files written without one
+    private static long readCoveredGeneration(File csvFile) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(csvFile), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            int index = header == null ? -1 : header.lastIndexOf(GENERATION_HEADER);
+            if (index < 0) {
+                return -1;
+            }
+            try {
+                return Long.parseLong(header.substring(index + GENERATION_HEADER.length()).trim());
+            } catch (NumberFormatException e) {
+                return -1; // Not a stamp we wrote
+            }
+        }
+    }
+
+    private static String formatHistogram(int[] stars) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < stars.length; i++) {
+            if (i > 0) {
+                sb.append('/');
+            }
+            sb.append(stars[i]);
+        }
+        return sb.toString();
+    }
+
+    public void loadFromCSV() {
+        databaseLock.lock();
+        lock.lock(); // Never read the CSV and journal halfway through another process's checkpoint
+        try {
+            loadCatalog();
+        } finally {
+            lock.unlock();
+            databaseLock.unlock();
+        }
+    }
+
+    private void loadCatalog() {
+        LibraryEvents.CatalogLoad event = new LibraryEvents.CatalogLoad();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            readCatalog();
+        } finally {
+            LOAD_TIMER.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = new File(directory, GENERAL_CSV).getPath();
+                event.books = books.size();
+                event.journalBytes = journal.size();
+                event.commit();
+            }
+        }
+    }
+
+    private void readCatalog() {
+        books = books.reset(); // Readers keep the version they already hold
+        titleIndex.clear();
+        searchIndex = null; // Rebuilt lazily for the reloaded catalog
+        fuzzyIndex = null;
+        titleCompletions = null;
+        authorCompletions = null;
+        completionsRequested.set(false); // The next suggestion builds tries for the reloaded catalog
+        leaderboards = null;
+        ratingStore = new RatingStore(1024);
+        migratedReviews = false;
+        File csvFile = new File(directory, GENERAL_CSV);
+        File snapshotFile = new File(directory, SNAPSHOT_FILE);
+
+        // The snapshot is only trusted while it matches the CSV it was built from
+        List<GeneralBook> loaded = CatalogSnapshot.read(snapshotFile, csvFile, ratingStore);
+        long coveredGeneration = -1; // Journal generation already included in the checkpoint, -1 if unknown
+        if (loaded != null) {
+            coveredGeneration = CatalogSnapshot.readCoveredGeneration(snapshotFile);
+            for (GeneralBook book : loaded) {
+                applyAdd(book); // Add the book to the list and index
+            }
+        } else if (csvFile.exists()) {
+            try {
+                coveredGeneration = readCoveredGeneration(csvFile);
+                for (ParsedRow parsed : CsvReader.read(csvFile, true, GeneralDatabase::parseRow)) { // Skip the header
+                    applyAdd(parsed.book);
+                    if (parsed.legacyReviews != null) {
+                        for (String review : parsed.legacyReviews.split(", ")) {
+                            appendReview(parsed.book, review);
+                        }
+                        migratedReviews = true;
+                    }
+                }
+                if (!migratedReviews) {
+                    CatalogSnapshot.write(snapshotFile, csvFile, books, coveredGeneration);
+                }
+            } catch (IOException e) {
+                e.printStackTrace(); // Handle file read error
+            }
+        }
+
+        // Apply mutations made since the checkpoint
+        journalGeneration = journal.getGeneration();
+        if (journalGeneration == coveredGeneration) {
+            // A checkpoint was swapped in but its writer died before resetting the journal; the
+            // records are already in the CSV, so finish the reset instead of applying them twice
+            journalGeneration = journal.reset();
+            journalPosition = journal.size();
+        } else {
+            List<CatalogJournal.Entry> entries = new ArrayList<>();
+            journalPosition = journal.readFrom(0, entries);
+            replay(entries);
+        }
+
+        if (migratedReviews) {
+            writeCheckpoint(); // Persist the review handles so the migration runs only once
+        }
+    }
 }
\ No newline at end of file
@@ -1,163 +1,256 @@
-import javax.swing.*;
-import javax.swing.table.*;
-import java.awt.*;
-import java.awt.event.*;
-import java.util.*;
-import java.util.List;
-
-public class GeneralDatabaseGUI extends JFrame {
-    private JTable table;
-    private DefaultTableModel tableModel;
-    private TableRowSorter<DefaultTableModel> sorter;
-    private JTextField searchField;
-    private List<GeneralBook> originalBooks;
-    private Map<Integer, Integer> sortClickCount; // Track the click count for each column
-
-    public GeneralDatabaseGUI(GeneralDatabase generalDatabase, PersonalDatabase personalDatabase, boolean isRegularUser) {
-        this.originalBooks = new ArrayList<>(generalDatabase.getBooks()); // Store the original list of books
-        this.sortClickCount = new HashMap<>(); // Initialize the sort click count map
-
-        setTitle("General Database");
-        setSize(800, 600);
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        setLayout(new BorderLayout());
-
-        tableModel = new DefaultTableModel(new Object[]{"Title", "Author", "Rating", "Reviews"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Cells are not editable
-            }
-        };
-
-        table = new JTable(tableModel);
-        sorter = new TableRowSorter<>(tableModel);
-
-        table.setRowSorter(sorter);
-
-        // Custom header listener to handle cycling through sorting states
-        table.getTableHeader().addMouseListener(new MouseAdapter() {
-            @Override
-            public void mouseClicked(MouseEvent e) {
-                int columnIndex = table.columnAtPoint(e.getPoint());
-                int clickCount = sortClickCount.getOrDefault(columnIndex, 0) + 1; // Increment the click count
-
-                if (clickCount == 1) {
-                    // First click - ascending order
-                    sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(columnIndex, SortOrder.ASCENDING)));
-                } else if (clickCount == 2) {
-                    // Second click - descending order
-                    sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(columnIndex, SortOrder.DESCENDING)));
-                } else {
-                    // Third click - reset to default (original) order
-                    sorter.setSortKeys(null); // Reset to the original order
-                    populateTable(originalBooks); // Re-populate the table with the original data
-                    clickCount = 0; // Reset the click count for this column
-                }
-
-                sortClickCount.put(columnIndex, clickCount); // Update the click count map
-            }
-        });
-
-        // Populate the table initially
-        populateTable(originalBooks);
-
-        // Search functionality
-        searchField = new JTextField(20);
-        searchField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                String text = searchField.getText().toLowerCase();
-                if (text.trim().isEmpty()) {
-                    sorter.setRowFilter(null); // No filter
-                } else {
-                    sorter.setRowFilter(RowFilter.regexFilter(text)); // Filter by text
-                }
-            }
-        });
-
-        JPanel searchPanel = new JPanel();
-        searchPanel.add(new JLabel("Search:"));
-        searchPanel.add(searchField);
-
-        JPanel bottomPanel = new JPanel();
-
-        if (isRegularUser) {
-            JButton addToPersonalLibraryButton = new JButton("Add to Personal Library");
-            addToPersonalLibraryButton.addActionListener(e -> addBookToPersonalLibrary(personalDatabase));
-            bottomPanel.add(addToPersonalLibraryButton);
-        }
-
-        add(new JScrollPane(table), BorderLayout.CENTER);
-        add(searchPanel, BorderLayout.NORTH); // Add the search bar at the top
-        add(bottomPanel, BorderLayout.SOUTH); // Add buttons at the bottom
-
-        setVisible(true);
-        initializeSearchFunctionality();
-    }
-    private void initializeSearchFunctionality() {
-        searchField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                String text = searchField.getText().trim();
-                if (text.isEmpty()) {
-                    sorter.setRowFilter(null); // Reset filter
-                } else {
-                    // Filter across all columns (e.g., Title, Author)
-                    sorter.setRowFilter(RowFilter.regexFilter("(?i)" + text)); // Case-insensitive filtering
-                }
-            }
-        });
-    }
-    private void populateTable(List<GeneralBook> books) {
-        tableModel.setRowCount(0); // Clear existing rows
-
-        for (GeneralBook book : books) {
-            double rating = book.getAverageRating();
-            int ratingCount = book.getRatingCount();
-
-            String ratingDisplay = rating == -1
-                ? "No rating"
-                : String.format("%.2f (%d)", rating, ratingCount);
-
-            String reviews = book.getReviews().isEmpty()
-                ? "No reviews"
-                : String.join(", ", book.getReviews());
-
-            tableModel.addRow(new Object[]{
-                book.getTitle(),
-                book.getAuthor(),
-                ratingDisplay,
-                reviews
-            });
-        }
-    }
-
-    private void addBookToPersonalLibrary(PersonalDatabase personalDatabase) {
-        int selectedRow = table.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(this, "Please select a book to add to your personal library.");
-            return;
-        }
-
-        int modelRowIndex = table.convertRowIndexToModel(selectedRow); // Correct index after sorting/filtering
-
-        String title = (String) tableModel.getValueAt(modelRowIndex, 0);
-        String author = (String) tableModel.getValueAt(modelRowIndex, 1);
-
-        // Check if the book already exists in the personal database
-        if (personalDatabase.getPersonalBook(title) != null) {
-            JOptionPane.showMessageDialog(this, "This book is already in your personal library.");
-            return; // If it exists, prevent adding it again
-        }
-
-        PersonalBook personalBook = new PersonalBook(title, author);
-        personalDatabase.addPersonalBook(personalBook);
-
-        JOptionPane.showMessageDialog(this, "Book added to your personal library.");
-    }
-    
-
-
-
-
-}
+import javax.swing.*;
+import javax.swing.event.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.util.*;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public class GeneralDatabaseGUI extends JFrame {
+    private JTable table;
+    private CatalogTableModel tableModel;
+    private JTextField searchField;
+    private JCheckBox fuzzyCheckBox;
+    private SearchExecutor searchExecutor;
+    private GeneralDatabase generalDatabase;
+    private static final int REVIEW_PAGE_SIZE = 20;
+    private static final int SEARCH_DEBOUNCE_MS = 150;
+    private static final int SUGGESTION_LIMIT = 6;
+
+    public GeneralDatabaseGUI(GeneralDatabase generalDatabase, PersonalDatabase personalDatabase, boolean isRegularUser) {
+        this.generalDatabase = generalDatabase;
+
+        setTitle("General Database");
+        setSize(800, 600);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        // Rows are read from the catalog on demand, nothing is copied up front
+        tableModel = new CatalogTableModel(generalDatabase::getBooks, true);
+        table = new JTable(tableModel);
+        tableModel.installHeaderSorting(table); // Ascending, descending, then original order
+
+        // Search functionality
+        searchField = new JTextField(20);
+        AutoCompleteSupport.install(searchField, this::suggestTitlesAndAuthors);
+        generalDatabase.prepareCompletions(); // Ready by the time the user starts typing
+
+        JPanel searchPanel = new JPanel();
+        searchPanel.add(new JLabel("Search:"));
+        searchPanel.add(searchField);
+        fuzzyCheckBox = new JCheckBox("Fuzzy");
+        fuzzyCheckBox.setToolTipText("Also match misspelled titles and authors");
+        searchPanel.add(fuzzyCheckBox);
+
+        JPanel bottomPanel = new JPanel();
+
+        JButton viewReviewsButton = new JButton("View Reviews");
+        viewReviewsButton.addActionListener(e -> showReviewsForSelectedBook());
+        bottomPanel.add(viewReviewsButton);
+
+        JButton leaderboardsButton = new JButton("Leaderboards");
+        leaderboardsButton.addActionListener(e -> showLeaderboards());
+        bottomPanel.add(leaderboardsButton);
+
+        // Double-clicking a row opens its reviews as well
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && table.getSelectedRow() != -1) {
+                    showReviewsForSelectedBook();
+                }
+            }
+        });
+
+        if (isRegularUser) {
+            JButton addToPersonalLibraryButton = new JButton("Add to Personal Library");
+            addToPersonalLibraryButton.addActionListener(e -> addBookToPersonalLibrary(personalDatabase));
+            bottomPanel.add(addToPersonalLibraryButton);
+        }
+
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(searchPanel, BorderLayout.NORTH); // Add the search bar at the top
+        add(bottomPanel, BorderLayout.SOUTH); // Add buttons at the bottom
+
+        setVisible(true);
+        initializeSearchFunctionality();
+    }
+    private void initializeSearchFunctionality() {
+        searchExecutor = new SearchExecutor(SEARCH_DEBOUNCE_MS);
+        // One listener for typing, pasting and deleting alike
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                scheduleSearch();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                scheduleSearch();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                scheduleSearch();
+            }
+        });
+        fuzzyCheckBox.addActionListener(e -> scheduleSearch()); // Re-run the current query in the new mode
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                searchExecutor.cancel(); // Drop any pending search for a closed window
+            }
+        });
+    }
+
+    private List<String> suggestTitlesAndAuthors(String prefix) {
+        List<String> suggestions = new ArrayList<>(generalDatabase.suggestTitles(prefix, SUGGESTION_LIMIT));
+        suggestions.addAll(generalDatabase.suggestAuthors(prefix, SUGGESTION_LIMIT / 2));
+        return suggestions;
+    }
+
+    // Queries the index and builds the row permutation on the search worker, not on the EDT
+    private void scheduleSearch() {
+        String text = searchField.getText().trim();
+        boolean fuzzy = fuzzyCheckBox.isSelected();
+        searchExecutor.submit(() -> {
+            if (text.isEmpty()) {
+                return new SearchResult(null, null, tableModel.buildView(null)); // Reset filter
+            }
+            LibraryEvents.SearchFilter event = new LibraryEvents.SearchFilter();
+            event.begin();
+            // Kept by the model and run again on every refresh, so later additions and edits are matched too
+            Supplier<Predicate<GeneralBook>> query = () -> matching(text, fuzzy);
+            Predicate<GeneralBook> filter = query.get();
+            SearchResult result = new SearchResult(query, filter, tableModel.buildView(filter));
+            event.end();
+            if (event.shouldCommit()) {
+                event.table = "Catalog";
+                event.query = text;
+                event.fuzzy = fuzzy;
+                event.rows = result.view.size();
+                event.commit();
+            }
+            return result;
+        }, result -> tableModel.showView(result.query, result.filter, result.view));
+    }
+
+    // Title, author and review terms come from the live inverted index, no per-row regex
+    private Predicate<GeneralBook> matching(String text, boolean fuzzy) {
+        Set<GeneralBook> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+        matches.addAll(fuzzy
+            ? generalDatabase.fuzzySearch(text, Integer.MAX_VALUE) // Tolerates typos, whole words only
+            : generalDatabase.search(text));
+        return matches::contains;
+    }
+
+    private static class SearchResult {
+        private final Supplier<Predicate<GeneralBook>> query;
+        private final Predicate<GeneralBook> filter;
+        private final BookTableModel.View<GeneralBook> view;
+
+        private SearchResult(Supplier<Predicate<GeneralBook>> query, Predicate<GeneralBook> filter,
+                             BookTableModel.View<GeneralBook> view) {
+            this.query = query;
+            this.filter = filter;
+            this.view = view;
+        }
+    }
+
+    private void showLeaderboards() {
+        JDialog dialog = new JDialog(this, "Leaderboards", false);
+        dialog.add(new LeaderboardPanel(generalDatabase));
+        dialog.setSize(700, 500);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    private void showReviewsForSelectedBook() {
+        int selectedRow = table.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a book to view its reviews.");
+            return;
+        }
+
+        GeneralBook book = tableModel.getRow(selectedRow); // The model resolves sorting/filtering
+        if (book == null) {
+            return;
+        }
+        if (book.getReviewCount() == 0) {
+            JOptionPane.showMessageDialog(this, "This book has no reviews yet.");
+            return;
+        }
+
+        JDialog dialog = new JDialog(this, "Reviews: " + book.getTitle(), true);
+        DefaultListModel<String> reviewListModel = new DefaultListModel<>();
+        JList<String> reviewList = new JList<>(reviewListModel);
+        JLabel pageLabel = new JLabel();
+        JButton newerButton = new JButton("Newer");
+        JButton olderButton = new JButton("Older");
+        int pageCount = (book.getReviewCount() + REVIEW_PAGE_SIZE - 1) / REVIEW_PAGE_SIZE;
+        int[] currentPage = {0};
+
+        Runnable loadPage = () -> {
+            reviewListModel.clear();
+            for (String review : generalDatabase.getReviews(book, currentPage[0], REVIEW_PAGE_SIZE)) {
+                reviewListModel.addElement(review); // Only one page is ever read from disk
+            }
+            pageLabel.setText("Page " + (currentPage[0] + 1) + " of " + pageCount);
+            newerButton.setEnabled(currentPage[0] > 0);
+            olderButton.setEnabled(currentPage[0] < pageCount - 1);
+        };
+        newerButton.addActionListener(e -> {
+            currentPage[0]--;
+            loadPage.run();
+        });
+        olderButton.addActionListener(e -> {
+            currentPage[0]++;
+            loadPage.run();
+        });
+        loadPage.run();
+
+        JPanel pagingPanel = new JPanel();
+        pagingPanel.add(newerButton);
+        pagingPanel.add(pageLabel);
+        pagingPanel.add(olderButton);
+
+        dialog.setLayout(new BorderLayout());
+        dialog.add(new JScrollPane(reviewList), BorderLayout.CENTER);
+        dialog.add(pagingPanel, BorderLayout.SOUTH);
+        dialog.setSize(500, 400);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    private void addBookToPersonalLibrary(PersonalDatabase personalDatabase) {
+        int selectedRow = table.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a book to add to your personal library.");
+            return;
+        }
+
+        GeneralBook selectedBook = tableModel.getRow(selectedRow); // The model resolves sorting/filtering
+        if (selectedBook == null) {
+            return;
+        }
+        String title = selectedBook.getTitle();
+        String author = selectedBook.getAuthor();
+
+        // Check if the book already exists in the personal database
+        if (personalDatabase.getPersonalBook(title) != null) {
+            JOptionPane.showMessageDialog(this, "This book is already in your personal library.");
+            return; // If it exists, prevent adding it again
+        }
+
+        PersonalBook personalBook = new PersonalBook(title, author);
+        personalDatabase.addPersonalBook(personalBook);
+
+        JOptionPane.showMessageDialog(this, "Book added to your personal library.");
+    }
+    
+
+
+
+
+}
@@ -0,0 +1,165 @@
+import java.util.*;
+
+// Just enough JSON for the HTTP API: writing values and reading flat request objects.
+// Request bodies are single objects whose values are strings, numbers, booleans or null.
+public class Json {
+    private Json() {
+    }
+
+    public static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c)); // Other control characters
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // Flat object to a map of raw values; numbers and booleans keep their literal text
+    public static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> values = parser.object();
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw new IllegalArgumentException("Trailing characters after JSON object");
+        }
+        return values;
+    }
+
+    private static class Parser {
+        private final String text;
+        private int position;
+
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        private Map<String, String> object() {
+            Map<String, String> values = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return values;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                values.put(key, value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    position++;
+                } else {
+                    expect('}');
+                    return values;
+                }
+            }
+        }
+
+        private String value() {
+            if (peek() == '"') {
+                return string();
+            }
+            int start = position;
+            while (!atEnd() && ",} \t\r\n".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty() || literal.startsWith("{") || literal.startsWith("[")) {
+                throw new IllegalArgumentException("Only flat JSON objects are supported");
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (atEnd()) {
+                    throw new IllegalArgumentException("Unterminated JSON string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        sb.append(escaped); // Quote, backslash and slash
+                }
+            }
+        }
+
+        private void expect(char c) {
+            if (atEnd() || text.charAt(position) != c) {
+                throw new IllegalArgumentException("Expected '" + c + "' at position " + position);
+            }
+            position++;
+        }
+
+        private char peek() {
+            return atEnd() ? '\0' : text.charAt(position);
+        }
+
+        private void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private boolean atEnd() {
+            return position >= text.length();
+        }
+    }
+}
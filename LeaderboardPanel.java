@@ -0,0 +1,48 @@
+import javax.swing.*;
+import java.awt.*;
+
+// Top books of the catalog, one tab per board. Rows come straight from the database's
+// leaderboards in rank order, so showing them never sorts the catalog. The boards are looked up
+// on every refresh because a catalog reload replaces them.
+public class LeaderboardPanel extends JPanel {
+    public static final int BOARD_SIZE = 50;
+
+    private final CatalogTableModel topRatedModel;
+    private final CatalogTableModel mostRatedModel;
+    private final CatalogTableModel mostReviewedModel;
+    private final GeneralDatabase generalDatabase;
+    private final JLabel thresholdLabel = new JLabel();
+
+    public LeaderboardPanel(GeneralDatabase generalDatabase) {
+        super(new BorderLayout());
+        this.generalDatabase = generalDatabase;
+        topRatedModel = new CatalogTableModel(() -> generalDatabase.getLeaderboards().getTopRated(BOARD_SIZE), true);
+        mostRatedModel = new CatalogTableModel(() -> generalDatabase.getLeaderboards().getMostRated(BOARD_SIZE), true);
+        mostReviewedModel = new CatalogTableModel(() -> generalDatabase.getLeaderboards().getMostReviewed(BOARD_SIZE), true);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Top Rated", new JScrollPane(new JTable(topRatedModel)));
+        tabs.addTab("Most Rated", new JScrollPane(new JTable(mostRatedModel)));
+        tabs.addTab("Most Reviewed", new JScrollPane(new JTable(mostReviewedModel)));
+        tabs.addChangeListener(e -> refresh()); // Boards move while another tab is showing
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh());
+
+        JPanel bottomPanel = new JPanel();
+        bottomPanel.add(thresholdLabel);
+        bottomPanel.add(refreshButton);
+
+        add(tabs, BorderLayout.CENTER);
+        add(bottomPanel, BorderLayout.SOUTH);
+        refresh();
+    }
+
+    // Re-reads the first BOARD_SIZE entries of each board; must run on the EDT
+    public void refresh() {
+        thresholdLabel.setText("Top Rated lists books with at least " + generalDatabase.getLeaderboards().getMinRatings() + " ratings.");
+        topRatedModel.refresh();
+        mostRatedModel.refresh();
+        mostReviewedModel.refresh();
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.*;
+
+// Catalog rankings kept sorted as ratings and reviews arrive: highest average rating (among books
+// with enough ratings), most ratings and most reviews. Each board is a TreeSet of immutable
+// snapshots of the ranked values, so a change removes the book's old snapshot and inserts a new
+// one in O(log n), and reading the top N is a walk over the first N entries.
+public class Leaderboards {
+    public static final int DEFAULT_MIN_RATINGS = 3;
+
+    // The values a book is ranked by at one point in time; boards never see the live book change
+    private static final class Entry {
+        private final GeneralBook book;
+        private final long order; // Ties go to the book ranked first
+        private final int ratingCount;
+        private final long ratingSumTenths;
+        private final int reviewCount;
+
+        private Entry(GeneralBook book, long order) {
+            this.book = book;
+            this.order = order;
+            this.ratingCount = book.getRatingCount();
+            this.ratingSumTenths = book.getRatingSumTenths();
+            this.reviewCount = book.getReviewCount();
+        }
+    }
+
+    // Averages compared as sum1 / count1 vs sum2 / count2 without dividing
+    private static final Comparator<Entry> BY_AVERAGE = (a, b) -> {
+        int average = Long.compare(b.ratingSumTenths * a.ratingCount, a.ratingSumTenths * b.ratingCount);
+        if (average != 0) {
+            return average;
+        }
+        int count = Integer.compare(b.ratingCount, a.ratingCount);
+        return count != 0 ? count : Long.compare(a.order, b.order);
+    };
+    private static final Comparator<Entry> BY_RATING_COUNT = (a, b) -> {
+        int count = Integer.compare(b.ratingCount, a.ratingCount);
+        return count != 0 ? count : Long.compare(a.order, b.order);
+    };
+    private static final Comparator<Entry> BY_REVIEW_COUNT = (a, b) -> {
+        int count = Integer.compare(b.reviewCount, a.reviewCount);
+        return count != 0 ? count : Long.compare(a.order, b.order);
+    };
+
+    private final int minRatings;
+    private final Map<GeneralBook, Entry> entries = new IdentityHashMap<>();
+    private final TreeSet<Entry> topRated = new TreeSet<>(BY_AVERAGE);
+    private final TreeSet<Entry> mostRated = new TreeSet<>(BY_RATING_COUNT);
+    private final TreeSet<Entry> mostReviewed = new TreeSet<>(BY_REVIEW_COUNT);
+    private long nextOrder;
+
+    public Leaderboards(int minRatings) {
+        this.minRatings = Math.max(1, minRatings);
+    }
+
+    public int getMinRatings() {
+        return minRatings;
+    }
+
+    public synchronized void add(GeneralBook book) {
+        if (!entries.containsKey(book)) {
+            insert(new Entry(book, nextOrder++));
+        }
+    }
+
+    public synchronized void remove(GeneralBook book) {
+        Entry entry = entries.remove(book);
+        if (entry != null) {
+            unlink(entry);
+        }
+    }
+
+    // Call after the book's ratings or reviews changed; title and author edits do not move it
+    public synchronized void update(GeneralBook book) {
+        Entry old = entries.remove(book);
+        if (old == null) {
+            return; // Not on the boards, e.g. a book of another catalog
+        }
+        unlink(old); // Removed by the old values, before the set could see the new ones
+        insert(new Entry(book, old.order));
+    }
+
+    // Highest average first, among books with at least getMinRatings() ratings
+    public synchronized List<GeneralBook> getTopRated(int limit) {
+        return head(topRated, limit);
+    }
+
+    public synchronized List<GeneralBook> getMostRated(int limit) {
+        return head(mostRated, limit);
+    }
+
+    public synchronized List<GeneralBook> getMostReviewed(int limit) {
+        return head(mostReviewed, limit);
+    }
+
+    private void insert(Entry entry) {
+        entries.put(entry.book, entry);
+        if (entry.ratingCount >= minRatings) {
+            topRated.add(entry);
+        }
+        if (entry.ratingCount > 0) {
+            mostRated.add(entry);
+        }
+        if (entry.reviewCount > 0) {
+            mostReviewed.add(entry);
+        }
+    }
+
+    private void unlink(Entry entry) {
+        topRated.remove(entry);
+        mostRated.remove(entry);
+        mostReviewed.remove(entry);
+    }
+
+    private static List<GeneralBook> head(TreeSet<Entry> board, int limit) {
+        List<GeneralBook> books = new ArrayList<>(Math.min(limit, board.size()));
+        for (Entry entry : board) {
+            if (books.size() == limit) {
+                break;
+            }
+            books.add(entry.book);
+        }
+        return books;
+    }
+}
@@ -0,0 +1,105 @@
+import jdk.jfr.*;
+
+// JDK Flight Recorder events for the operations that can stall the application: full-file loads and
+// rewrites, search filtering and table rebuilds. Emitters follow begin/end/shouldCommit and only fill
+// in fields when a recording wants the event, so with recording off they cost next to nothing.
+// Record with: jcmd <pid> JFR.start name=library filename=library.jfr settings=profile
+public class LibraryEvents {
+    private LibraryEvents() {
+    }
+
+    @Name("library.CatalogLoad")
+    @Label("Catalog Load")
+    @Category({"Library", "Persistence"})
+    @Description("General catalog read from the snapshot or CSV, plus journal replay")
+    public static class CatalogLoad extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Books")
+        int books;
+
+        @Label("Journal Bytes Replayed")
+        @DataAmount
+        long journalBytes;
+    }
+
+    @Name("library.CatalogCheckpoint")
+    @Label("Catalog Checkpoint")
+    @Category({"Library", "Persistence"})
+    @Description("Full rewrite of general.csv and its snapshot")
+    public static class CatalogCheckpoint extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Books")
+        int books;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+    }
+
+    @Name("library.LibraryLoad")
+    @Label("Personal Library Load")
+    @Category({"Library", "Persistence"})
+    public static class LibraryLoad extends Event {
+        @Label("User")
+        String user;
+
+        @Label("File")
+        String file;
+
+        @Label("Books")
+        int books;
+    }
+
+    @Name("library.LibrarySave")
+    @Label("Personal Library Save")
+    @Category({"Library", "Persistence"})
+    @Description("Full rewrite of a user's personal library CSV")
+    public static class LibrarySave extends Event {
+        @Label("User")
+        String user;
+
+        @Label("File")
+        String file;
+
+        @Label("Books")
+        int books;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytesWritten;
+    }
+
+    @Name("library.SearchFilter")
+    @Label("Search Filter")
+    @Category({"Library", "GUI"})
+    @Description("Search query evaluated into a table permutation on the search worker")
+    public static class SearchFilter extends Event {
+        @Label("Table")
+        String table;
+
+        @Label("Query")
+        String query;
+
+        @Label("Fuzzy")
+        boolean fuzzy;
+
+        @Label("Rows Shown")
+        int rows;
+    }
+
+    @Name("library.TableRefresh")
+    @Label("Table Refresh")
+    @Category({"Library", "GUI"})
+    @Description("Table view rebuilt on the EDT after a change")
+    public static class TableRefresh extends Event {
+        @Label("Table")
+        String table;
+
+        @Label("Rows Shown")
+        int rows;
+    }
+}
@@ -0,0 +1,397 @@
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Headless mode: serves the catalog and personal libraries as a local JSON HTTP API.
+// Every request runs on its own virtual thread (a cached pool on JDKs without them) against one
+// shared GeneralDatabase, whose readers never block. Personal libraries come from the same
+// PersonalLibraryCache the Swing app uses; requests for one user are serialized on their library's
+// lock. No handler holds a monitor across file I/O, which would pin its virtual thread's carrier.
+//
+//   POST /api/login    {"username", "password"}     -> {"token", "admin"}
+//   GET  /api/books    ?q=&fuzzy=&offset=&limit=    -> catalog page or search results
+//   GET  /api/reviews  ?title=&page=&size=          -> one page of a book's reviews
+//   GET  /api/library                               -> the caller's personal library
+//   POST /api/library  {"title"}                    -> add a catalog book to the library
+//   POST /api/rate     {"title", "rating"}
+//   POST /api/review   {"title", "text"}
+//   POST /api/status   {"title", "status"}
+//
+// Everything except login and catalog reads needs "Authorization: Bearer <token>".
+public class LibraryServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final String METRICS_FILE = "metrics.json";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final long CACHED_LIBRARY_BOOKS = 1_000_000;
+    private static final long SESSION_IDLE_NANOS = TimeUnit.MINUTES.toNanos(30); // Tokens expire after this long unused
+
+    private static class ApiException extends Exception {
+        private final int status;
+
+        private ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static class Session {
+        private final String username;
+        private volatile long expiresAt; // System.nanoTime() deadline, pushed back on every use
+
+        private Session(String username, long expiresAt) {
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private interface Handler {
+        String handle(HttpExchange exchange, Map<String, String> params) throws ApiException;
+    }
+
+    private final GeneralDatabase generalDatabase;
+    private final PersonalLibraryCache libraryCache;
+    private final UserRegistry userRegistry;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>(); // Token -> session
+    private final SecureRandom random = new SecureRandom();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public LibraryServer(GeneralDatabase generalDatabase, PersonalLibraryCache libraryCache, UserRegistry userRegistry) {
+        this.generalDatabase = generalDatabase;
+        this.libraryCache = libraryCache;
+        this.userRegistry = userRegistry;
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024); // Local only
+        executor = VirtualThreads.newPerTaskExecutor("http-worker");
+        server.setExecutor(executor);
+        route("/api/login", "POST", this::login);
+        route("/api/books", "GET", this::listBooks);
+        route("/api/reviews", "GET", this::listReviews);
+        route("/api/library", null, this::library);
+        route("/api/rate", "POST", this::rate);
+        route("/api/review", "POST", this::review);
+        route("/api/status", "POST", this::changeStatus);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        libraryCache.flush(); // Write back libraries changed through the API
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void route(String path, String method, Handler handler) {
+        server.createContext(path, exchange -> {
+            int status = 200;
+            String body;
+            try {
+                if (method != null && !method.equals(exchange.getRequestMethod())) {
+                    throw new ApiException(405, "Use " + method);
+                }
+                if (!exchange.getRequestURI().getPath().equals(path)) {
+                    throw new ApiException(404, "Not found");
+                }
+                body = handler.handle(exchange, readParams(exchange));
+            } catch (ApiException e) {
+                status = e.status;
+                body = error(e.getMessage());
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                status = 400; // Malformed JSON or number
+                body = error("Bad request: " + e.getMessage());
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // Handle unexpected server error
+                status = 500;
+                body = error("Internal error");
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+    }
+
+    // Query parameters, overlaid with the JSON body of POST requests
+    private static Map<String, String> readParams(HttpExchange exchange) throws ApiException {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                String key = equals < 0 ? pair : pair.substring(0, equals);
+                String value = equals < 0 ? "" : pair.substring(equals + 1);
+                params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+        if ("POST".equals(exchange.getRequestMethod())) {
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+                if (bytes.length > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "Request body too large");
+                }
+                String text = new String(bytes, StandardCharsets.UTF_8).trim();
+                if (!text.isEmpty()) {
+                    params.putAll(Json.parseObject(text));
+                }
+            } catch (IOException e) {
+                throw new ApiException(400, "Unreadable request body");
+            }
+        }
+        return params;
+    }
+
+    private String login(HttpExchange exchange, Map<String, String> params) throws ApiException {
+        String username = required(params, "username");
+        String password = required(params, "password");
+        boolean admin = userRegistry.isAdmin(username, password);
+        if (!admin && !userRegistry.isUser(username, password)) {
+            throw new ApiException(401, "Invalid username or password.");
+        }
+        byte[] tokenBytes = new byte[24];
+        random.nextBytes(tokenBytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+        long now = System.nanoTime();
+        sessions.values().removeIf(session -> now - session.expiresAt > 0); // Evict abandoned tokens as new ones arrive
+        sessions.put(token, new Session(username, now + SESSION_IDLE_NANOS));
+        return "{\"token\":" + Json.quote(token) + ",\"admin\":" + admin + "}";
+    }
+
+    private String listBooks(HttpExchange exchange, Map<String, String> params) throws ApiException {
+        int offset = Math.max(0, intParam(params, "offset", 0));
+        int limit = Math.min(MAX_PAGE_SIZE, Math.max(1, intParam(params, "limit", DEFAULT_PAGE_SIZE)));
+        String query = params.getOrDefault("q", "").trim();
+        List<GeneralBook> books;
+        if (query.isEmpty()) {
+            books = generalDatabase.getBooks(); // One immutable version, so the page is consistent
+        } else if (Boolean.parseBoolean(params.get("fuzzy"))) {
+            books = generalDatabase.fuzzySearch(query, Integer.MAX_VALUE); // Ranked; all matches count toward total
+        } else {
+            books = generalDatabase.search(query, Integer.MAX_VALUE);
+        }
+
+        StringBuilder sb = new StringBuilder("{\"total\":").append(books.size()).append(",\"books\":[");
+        for (int i = offset; i < books.size() && i < offset + limit; i++) {
+            if (i > offset) {
+                sb.append(',');
+            }
+            appendBook(sb, books.get(i));
+        }
+        return sb.append("]}").toString();
+    }
+
+    private String listReviews(HttpExchange exchange, Map<String, String> params) throws ApiException {
+        GeneralBook book = catalogBook(required(params, "title"));
+        int page = Math.max(0, intParam(params, "page", 0));
+        int size = Math.min(MAX_PAGE_SIZE, Math.max(1, intParam(params, "size", DEFAULT_PAGE_SIZE)));
+        StringBuilder sb = new StringBuilder("{\"total\":").append(book.getReviewCount()).append(",\"reviews\":[");
+        List<String> reviews = generalDatabase.getReviews(book, page, size);
+        for (int i = 0; i < reviews.size(); i++) {
+            sb.append(i > 0 ? "," : "").append(Json.quote(reviews.get(i)));
+        }
+        return sb.append("]}").toString();
+    }
+
+    private String library(HttpExchange exchange, Map<String, String> params) throws ApiException {
+        String username = authenticatedUser(exchange);
+        PersonalDatabase library = libraryCache.get(username);
+        if ("GET".equals(exchange.getRequestMethod())) {
+            StringBuilder sb = new StringBuilder("{\"books\":[");
+            library.getLock().lock();
+            try {
+                List<PersonalBook> books = library.getPersonalBookView();
+                for (int i = 0; i < books.size(); i++) {
+                    if (i > 0) {
+                        sb.append(',');
+                    }
+                    appendPersonalBook(sb, books.get(i));
+                }
+            } finally {
+                library.getLock().unlock();
+            }
+            return sb.append("]}").toString();
+        }
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            throw new ApiException(405, "Use GET or POST");
+        }
+
+        GeneralBook book = catalogBook(required(params, "title"));
+        library.getLock().lock();
+        try {
+            if (library.getPersonalBook(book.getTitle()) != null) {
+                throw new ApiException(409, "This book is already in your personal library.");
+            }
+            library.addPersonalBook(new PersonalBook(book.getTitle(), book.getAuthor()));
+        } finally {
+            library.getLock().unlock();
+        }
+        return "{\"added\":" + Json.quote(book.getTitle()) + "}";
+    }
+
+    private String rate(HttpExchange exchange, Map<String, String> params) throws ApiException {
+        String username = authenticatedUser(exchange);
+        double rating = Double.parseDouble(required(params, "rating"));
+        if (!(rating >= 1 && rating <= 5)) { // Also rejects NaN
+            throw new ApiException(400, "Please enter a valid rating between 1 and 5.");
+        }
+        PersonalDatabase library = libraryCache.get(username);
+        library.getLock().lock();
+        try {
+            PersonalBook book = personalBook(library, required(params, "title"));
+            library.rateBook(book, rating); // Add user rating
+            generalDatabase.updateBookRating(book.getTitle(), rating); // Update the general database
+            library.saveToFile();
+        } finally {
+            library.getLock().unlock();
+        }
+        return "{\"rated\":true}";
+    }
+
+    private String review(HttpExchange exchange, Map<String, String> params) throws ApiException {
+        String username = authenticatedUser(exchange);
+        String text = required(params, "text").trim();
+        if (text.isEmpty()) {
+            throw new ApiException(400, "Review text is empty");
+        }
+        String fullReview = username + ": " + text; // Same attribution as reviews written in the GUI
+        PersonalDatabase library = libraryCache.get(username);
+        library.getLock().lock();
+        try {
+            PersonalBook book = personalBook(library, required(params, "title"));
+            book.addUserReview(fullReview);
+            generalDatabase.addReviewToGeneralBook(book.getTitle(), fullReview);
+            library.saveToFile();
+        } finally {
+            library.getLock().unlock();
+        }
+        return "{\"reviewed\":true}";
+    }
+
+    private String changeStatus(HttpExchange exchange, Map<String, String> params) throws ApiException {
+        String username = authenticatedUser(exchange);
+        String status = required(params, "status");
+        if (!PersonalBook.STATUSES.contains(status)) {
+            throw new ApiException(400, "Status must be one of " + PersonalBook.STATUSES);
+        }
+        PersonalDatabase library = libraryCache.get(username);
+        library.getLock().lock();
+        try {
+            PersonalBook book = personalBook(library, required(params, "title"));
+            library.changeStatus(book, status);
+            library.saveToFile();
+            if (status.equals("Ongoing")) {
+                ReadingSessionTracker.getInstance().start(username, library, book);
+            } else if (ReadingSessionTracker.getInstance().isReading(username, book)) {
+                ReadingSessionTracker.getInstance().stop(username);
+            }
+        } finally {
+            library.getLock().unlock();
+        }
+        return "{\"status\":" + Json.quote(status) + "}";
+    }
+
+    private String authenticatedUser(HttpExchange exchange) throws ApiException {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        String token = header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+        Session session = token == null ? null : sessions.get(token);
+        long now = System.nanoTime();
+        if (session != null && now - session.expiresAt > 0) {
+            sessions.remove(token, session);
+            session = null;
+        }
+        if (session == null) {
+            throw new ApiException(401, "Log in first");
+        }
+        session.expiresAt = now + SESSION_IDLE_NANOS;
+        String username = session.username;
+        if (username.equals(UserRegistry.ADMIN_USERNAME)) {
+            throw new ApiException(403, "The admin account has no personal library");
+        }
+        return username;
+    }
+
+    private GeneralBook catalogBook(String title) throws ApiException {
+        GeneralBook book = generalDatabase.findByTitle(title);
+        if (book == null) {
+            throw new ApiException(404, "No book titled " + title);
+        }
+        return book;
+    }
+
+    private static PersonalBook personalBook(PersonalDatabase library, String title) throws ApiException {
+        PersonalBook book = library.getPersonalBook(title);
+        if (book == null) {
+            throw new ApiException(404, "Not in your personal library: " + title);
+        }
+        return book;
+    }
+
+    private static String required(Map<String, String> params, String name) throws ApiException {
+        String value = params.get(name);
+        if (value == null) {
+            throw new ApiException(400, "Missing " + name);
+        }
+        return value;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    private static void appendBook(StringBuilder sb, GeneralBook book) {
+        double rating = book.getAverageRating();
+        sb.append("{\"title\":").append(Json.quote(book.getTitle()))
+          .append(",\"author\":").append(Json.quote(book.getAuthor()))
+          .append(",\"averageRating\":").append(rating < 0 ? "null" : Double.toString(rating))
+          .append(",\"ratingCount\":").append(book.getRatingCount())
+          .append(",\"reviewCount\":").append(book.getReviewCount())
+          .append('}');
+    }
+
+    private static void appendPersonalBook(StringBuilder sb, PersonalBook book) {
+        sb.append("{\"title\":").append(Json.quote(book.getTitle()))
+          .append(",\"author\":").append(Json.quote(book.getAuthor()))
+          .append(",\"status\":").append(Json.quote(book.getStatus()))
+          .append(",\"timeSpent\":").append(book.getTimeSpent())
+          .append(",\"startDate\":").append(Json.quote(book.getStartDate()))
+          .append(",\"endDate\":").append(Json.quote(book.getEndDate()))
+          .append(",\"userRatings\":").append(book.getUserRatings())
+          .append(",\"userReviews\":[");
+        List<String> reviews = book.getUserReviews();
+        for (int i = 0; i < reviews.size(); i++) {
+            sb.append(i > 0 ? "," : "").append(Json.quote(reviews.get(i)));
+        }
+        sb.append("]}");
+    }
+
+    // java LibraryServer [port] [metrics dump interval in seconds]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        if (args.length > 1) {
+            Metrics.startPeriodicDump(Long.parseLong(args[1]), System.out::print, new File(METRICS_FILE)); // Text to stdout, JSON to the file
+        }
+        LibraryServer libraryServer = new LibraryServer(new GeneralDatabase(),
+            new PersonalLibraryCache(CACHED_LIBRARY_BOOKS), UserRegistry.getInstance());
+        libraryServer.start(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(libraryServer::stop));
+        System.out.println("Library server listening on http://localhost:" + libraryServer.getPort()
+            + (VirtualThreads.isAvailable() ? " (virtual threads)" : " (platform threads)"));
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Headless load driver: N simulated users share one GeneralDatabase, each with a personal library,
+// and run a weighted mix of the operations the GUI and the HTTP server perform. Reports latency
+// percentiles and throughput per operation, plus the bytes the process wrote to files meanwhile.
+// java LoadGenerator [--users 100] [--seconds 30] [--books 10000] [--think-ms 0]
+//                    [--mix browse=50,add=15,rate=15,review=10,status=10] [--dir path]
+public class LoadGenerator {
+    private static final String[] OPERATIONS = {"browse", "add", "rate", "review", "status"};
+    private static final String[] QUERIES = {"silent", "river garden", "memory", "harbor iron", "ember", "crown"};
+    private static final int PAGE_SIZE = 50;
+    private static final long SEED = 42;
+
+    private final GeneralDatabase generalDatabase;
+    private final File directory;
+    private final int catalogSize;
+    private final int[] cumulativeWeights = new int[OPERATIONS.length];
+    private final long thinkMillis;
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+
+    private LoadGenerator(GeneralDatabase generalDatabase, File directory, int catalogSize, int[] weights, long thinkMillis) {
+        this.generalDatabase = generalDatabase;
+        this.directory = directory;
+        this.catalogSize = catalogSize;
+        this.thinkMillis = thinkMillis;
+        int running = 0;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            running += weights[i];
+            cumulativeWeights[i] = running;
+            latencies.put(OPERATIONS[i], new LatencyHistogram());
+            errors.put(OPERATIONS[i], new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = 100;
+        double seconds = 30;
+        int books = 10_000;
+        long thinkMillis = 0;
+        int[] weights = {50, 15, 15, 10, 10};
+        File directory = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--users":
+                    users = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seconds":
+                    seconds = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--books":
+                    books = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--think-ms":
+                    thinkMillis = Long.parseLong(args[i + 1]);
+                    break;
+                case "--mix":
+                    weights = parseMix(args[i + 1]);
+                    break;
+                case "--dir":
+                    directory = new File(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        boolean temporary = directory == null;
+        if (temporary) {
+            directory = Files.createTempDirectory("library-load").toFile();
+        } else if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        if (!new File(directory, "general.csv").exists()) {
+            SyntheticCatalog.writeCatalog(directory, books, SEED);
+        }
+        GeneralDatabase generalDatabase = new GeneralDatabase(directory);
+        int catalogSize = generalDatabase.getBooks().size();
+
+        LoadGenerator generator = new LoadGenerator(generalDatabase, directory, catalogSize, weights, thinkMillis);
+        System.out.println("Running " + users + " users for " + seconds + " s against " + catalogSize + " books in "
+            + directory + (VirtualThreads.isAvailable() ? " (virtual threads)" : " (platform threads)"));
+        generator.run(users, (long) (seconds * 1e9));
+
+        if (temporary) {
+            File[] files = directory.listFiles();
+            for (File file : files != null ? files : new File[0]) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private void run(int users, long durationNanos) throws InterruptedException {
+        long bytesBefore = bytesWritten();
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("load-user");
+        for (int user = 0; user < users; user++) {
+            int id = user;
+            executor.execute(() -> simulateUser(id, deadline));
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long bytesWritten = bytesBefore < 0 ? -1 : bytesWritten() - bytesBefore;
+        report(elapsedSeconds, bytesWritten);
+    }
+
+    private void simulateUser(int id, long deadline) {
+        Random random = new Random(SEED + id);
+        PersonalDatabase library = new PersonalDatabase(directory, "load-user-" + id);
+        while (System.nanoTime() < deadline) {
+            String operation = pick(random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]));
+            long start = System.nanoTime();
+            try {
+                perform(operation, library, random);
+                latencies.get(operation).record(System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                errors.get(operation).increment();
+            }
+            if (thinkMillis > 0) {
+                try {
+                    Thread.sleep(thinkMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Mirrors what the GUI and LibraryServer do for each action, including the saves
+    private void perform(String operation, PersonalDatabase library, Random random) {
+        switch (operation) {
+            case "browse":
+                browse(random);
+                break;
+            case "add":
+                addRandomBook(library, random);
+                break;
+            case "rate": {
+                PersonalBook book = randomPersonalBook(library, random);
+                double rating = 1 + random.nextInt(RatingStore.STARS);
+                library.rateBook(book, rating);
+                generalDatabase.updateBookRating(book.getTitle(), rating);
+                library.saveToFile();
+                break;
+            }
+            case "review": {
+                PersonalBook book = randomPersonalBook(library, random);
+                String review = library.getUser() + ": " + SyntheticCatalog.review(random);
+                book.addUserReview(review);
+                generalDatabase.addReviewToGeneralBook(book.getTitle(), review);
+                library.saveToFile();
+                break;
+            }
+            default: {
+                PersonalBook book = randomPersonalBook(library, random);
+                library.changeStatus(book, PersonalBook.STATUSES.get(random.nextInt(PersonalBook.STATUSES.size())));
+                library.saveToFile();
+            }
+        }
+    }
+
+    // A page of the catalog, a search, or a title lookup
+    private void browse(Random random) {
+        int kind = random.nextInt(3);
+        if (kind == 0) {
+            List<GeneralBook> books = generalDatabase.getBooks();
+            int from = books.isEmpty() ? 0 : random.nextInt(books.size());
+            for (GeneralBook book : books.subList(from, Math.min(books.size(), from + PAGE_SIZE))) {
+                book.getAverageRating(); // Read the cells a table row shows
+                book.getRatingCount();
+            }
+        } else if (kind == 1) {
+            generalDatabase.search(QUERIES[random.nextInt(QUERIES.length)]);
+        } else {
+            generalDatabase.findByTitle(SyntheticCatalog.title(random.nextInt(catalogSize)));
+        }
+    }
+
+    private void addRandomBook(PersonalDatabase library, Random random) {
+        GeneralBook book = generalDatabase.findByTitle(SyntheticCatalog.title(random.nextInt(catalogSize)));
+        if (book != null && library.getPersonalBook(book.getTitle()) == null) {
+            library.addPersonalBook(new PersonalBook(book.getTitle(), book.getAuthor()));
+        }
+    }
+
+    private PersonalBook randomPersonalBook(PersonalDatabase library, Random random) {
+        List<PersonalBook> books = library.getPersonalBookView();
+        while (books.isEmpty()) {
+            addRandomBook(library, random); // Nothing to rate yet, pick something up first
+            books = library.getPersonalBookView();
+        }
+        return books.get(random.nextInt(books.size()));
+    }
+
+    private String pick(int roll) {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return OPERATIONS[i];
+            }
+        }
+        return OPERATIONS[OPERATIONS.length - 1];
+    }
+
+    private void report(double elapsedSeconds, long bytesWritten) {
+        System.out.printf("%n%-8s %10s %10s %10s %10s %10s %10s %10s %8s%n",
+            "Op", "count", "ops/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors");
+        long totalOperations = 0;
+        long mutations = 0;
+        for (String operation : OPERATIONS) {
+            LatencyHistogram histogram = latencies.get(operation);
+            long count = histogram.getCount();
+            totalOperations += count;
+            if (!operation.equals("browse")) {
+                mutations += count;
+            }
+            System.out.printf("%-8s %10d %10.1f %10.3f %10.3f %10.3f %10.3f %10.3f %8d%n", operation, count,
+                count / elapsedSeconds, histogram.getMean() / 1e6, histogram.getPercentile(50) / 1e6,
+                histogram.getPercentile(90) / 1e6, histogram.getPercentile(99) / 1e6, histogram.getMax() / 1e6,
+                errors.get(operation).sum());
+        }
+        System.out.printf("%nTotal: %d operations, %.1f ops/s over %.1f s%n",
+            totalOperations, totalOperations / elapsedSeconds, elapsedSeconds);
+        if (bytesWritten < 0) {
+            System.out.println("File bytes written: not available on this platform");
+        } else {
+            System.out.printf("File bytes written: %.1f MB (%.1f MB/s, %d bytes per write operation)%n",
+                bytesWritten / 1e6, bytesWritten / 1e6 / elapsedSeconds, mutations == 0 ? 0 : bytesWritten / mutations);
+        }
+        System.out.println();
+        System.out.print(Metrics.toText()); // Where the time went inside the library
+    }
+
+    // Bytes this process passed to write calls, from /proc/self/io; -1 where that is unavailable
+    private static long bytesWritten() {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/io"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("wchar:")) {
+                    return Long.parseLong(line.substring(6).trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux, fall through
+        }
+        return -1;
+    }
+
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[OPERATIONS.length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.split("=");
+            int index = Arrays.asList(OPERATIONS).indexOf(pair[0].trim());
+            if (index < 0 || pair.length != 2) {
+                throw new IllegalArgumentException("Unknown operation in mix: " + part);
+            }
+            weights[index] = Integer.parseInt(pair[1].trim());
+        }
+        if (Arrays.stream(weights).sum() <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight");
+        }
+        return weights;
+    }
+}
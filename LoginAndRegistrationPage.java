@@ -1,9 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
-import java.io.*;
 import java.time.LocalTime;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -21,25 +18,20 @@ public class LoginAndRegistrationPage extends JFrame {
     }
 
 
-    private Map<String, String> userDatabase; // Simulated user database
-    private Map<String, String> adminCredentials; // Admin credentials
+    private UserRegistry userRegistry; // Registered users and admin credentials
     private JTextField usernameField;
     private JPasswordField passwordField;
+    private JButton loginButton;
+    private JButton registerButton;
 
-    private static final String USER_FILE = "users.txt";
     private static final Color MORNING_COLOR = new Color(255, 230, 168);
     private static final Color EVENING_COLOR = new Color(91, 91, 91);
 
     public LoginAndRegistrationPage() {
         super("Book Library Login");
 
-        // Initialize user database
-        userDatabase = new HashMap<>();
-        loadUsersFromFile();
-
-        // Initialize admin credentials
-        adminCredentials = new HashMap<>();
-        adminCredentials.put("admin", "admin");
+        // Shared registry, opened once per process by main before any window
+        userRegistry = UserRegistry.getInstance();
 
         initUI(); // Initialize the GUI components
 
@@ -61,24 +53,7 @@ public class LoginAndRegistrationPage extends JFrame {
         return usernameField.getText(); 
     }
     public void openAdminPage() {
-        JFrame adminFrame = new JFrame("Admin Panel");
-        adminFrame.setSize(400, 300);
-        adminFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        adminFrame.setLocationRelativeTo(null);
-
-        JTextArea textArea = new JTextArea();
-        textArea.setEditable(false);
-
-        StringBuilder userInfo = new StringBuilder("Registered Users:\n");
-        for (Map.Entry<String, String> entry : userDatabase.entrySet()) {
-            userInfo.append("Username: ").append(entry.getKey()).append(", Password: ").append(entry.getValue()).append("\n");
-        }
-
-        textArea.setText(userInfo.toString());
-
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        adminFrame.add(scrollPane);
-        adminFrame.setVisible(true);
+        new UserListFrame(userRegistry); // Paged and searchable, without passwords
     }
     private void initUI() {
         JLabel titleLabel = new JLabel("Book Library Login");
@@ -100,13 +75,13 @@ public class LoginAndRegistrationPage extends JFrame {
         passwordField = new JPasswordField(15);
         passwordField.setFont(new Font("Verdana", Font.PLAIN, 18));
     
-        JButton loginButton = new JButton("Login");
+        loginButton = new JButton("Login");
         loginButton.setFont(new Font("Verdana", Font.BOLD, 20));
         loginButton.setForeground(Color.BLACK);
         loginButton.setBackground(new Color(102, 0, 204)); // Purple color
         loginButton.addActionListener(e -> login());
     
-        JButton registerButton = new JButton("Register");
+        registerButton = new JButton("Register");
         registerButton.setFont(new Font("Verdana", Font.BOLD, 20));
         registerButton.setForeground(Color.BLACK);
         registerButton.setBackground(new Color(153, 51, 255)); // Lighter purple color
@@ -172,27 +147,41 @@ public class LoginAndRegistrationPage extends JFrame {
     private void login() {
         String username = usernameField.getText(); // Capture the username
         String password = String.valueOf(passwordField.getPassword());
-    
-        boolean isAdmin = false;
-    
-        if (adminCredentials.containsKey(username) && adminCredentials.get(username).equals(password)) {
-            isAdmin = true; // Admin login
-        } else if (userDatabase.containsKey(username) && userDatabase.get(username).equals(password)) {
-            isAdmin = false; // Regular user login
-        } else {
-            JOptionPane.showMessageDialog(this, "Invalid username or password.");
-            return; // Exit if login fails
-        }
-    
-        // Notify the listener upon successful login
-        if (loginListener != null) {
-            if (isAdmin) {
-                loginListener.onLoginSuccess(true, "admin"); // Admin login, pass "admin"
-            } else {
-                loginListener.onLoginSuccess(false, username); // Corrected: Pass username
+        setInputEnabled(false);
+
+        // Password hashing is deliberately slow, keep it off the EDT
+        new SwingWorker<Boolean, Void>() {
+            private boolean isAdmin;
+
+            @Override
+            protected Boolean doInBackground() {
+                isAdmin = userRegistry.isAdmin(username, password); // Admin login
+                return isAdmin || userRegistry.isUser(username, password);
             }
-        }
 
+            @Override
+            protected void done() {
+                setInputEnabled(true);
+                try {
+                    if (!get()) {
+                        JOptionPane.showMessageDialog(LoginAndRegistrationPage.this, "Invalid username or password.");
+                        return; // Exit if login fails
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace(); // Handle verification error
+                    return;
+                }
+
+                // Notify the listener upon successful login
+                if (loginListener != null) {
+                    if (isAdmin) {
+                        loginListener.onLoginSuccess(true, "admin"); // Admin login, pass "admin"
+                    } else {
+                        loginListener.onLoginSuccess(false, username); // Corrected: Pass username
+                    }
+                }
+            }
+        }.execute();
     }
     
 
@@ -205,16 +194,41 @@ public class LoginAndRegistrationPage extends JFrame {
             JOptionPane.showMessageDialog(this, "Username and password cannot be empty.");
             return;
         }
+        setInputEnabled(false);
 
-        if (userDatabase.containsKey(username)) {
-            JOptionPane.showMessageDialog(this, "Username already exists.");
-        } else {
-            userDatabase.put(username, password);
-            saveUsersToFile(); // Save new user to file
-            JOptionPane.showMessageDialog(this, "Registration successful!");
-            // Automatically log in after registration
-            login(); // Perform login after successful registration
-        }
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() {
+                return userRegistry.register(username, password); // Hashes the password, off the EDT
+            }
+
+            @Override
+            protected void done() {
+                setInputEnabled(true);
+                boolean registered;
+                try {
+                    registered = get();
+                } catch (Exception e) {
+                    e.printStackTrace(); // Handle registration error
+                    registered = false;
+                }
+                if (!registered) {
+                    JOptionPane.showMessageDialog(LoginAndRegistrationPage.this, "Username already exists.");
+                } else {
+                    JOptionPane.showMessageDialog(LoginAndRegistrationPage.this, "Registration successful!");
+                    // Automatically log in after registration
+                    login(); // Perform login after successful registration
+                }
+            }
+        }.execute();
+    }
+
+    // Blocks a second submit while a check is running
+    private void setInputEnabled(boolean enabled) {
+        usernameField.setEnabled(enabled);
+        passwordField.setEnabled(enabled);
+        loginButton.setEnabled(enabled);
+        registerButton.setEnabled(enabled);
     }
 
     private void updateBackground() {
@@ -229,32 +243,8 @@ public class LoginAndRegistrationPage extends JFrame {
         getContentPane().setBackground(newColor);
     }
 
-    private void saveUsersToFile() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(USER_FILE))) {
-            for (Map.Entry<String, String> entry : userDatabase.entrySet()) {
-                writer.write(entry.getKey() + "," + entry.getValue());
-                writer.newLine(); // Save each user
-            }
-        } catch (IOException e) {
-            e.printStackTrace(); // Handle file write error
-        }
-    }
-
-    private void loadUsersFromFile() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(USER_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 2) {
-                    userDatabase.put(parts[0], parts[1]); // Load users into the database
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace(); // Handle file read error
-        }
-    }
-
     public static void main(String[] args) {
+        UserRegistry.getInstance(); // Opened here, not on the EDT: the first start hashes every legacy account
         SwingUtilities.invokeLater(() -> new LoginAndRegistrationPage());
     }
 }
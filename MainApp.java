@@ -1,107 +1,117 @@
-import javax.swing.*;
-import java.io.*;
-
-public class MainApp {
-    private GeneralDatabase generalDatabase;
-    private PersonalDatabase personalDatabase;
-    private static final String CURRENT_USER_FILE = "current_user.txt";
-    private String currentUser;
-
-    public MainApp() {
-        generalDatabase = new GeneralDatabase();
-        generalDatabase.loadFromCSV();
-
-        personalDatabase = new PersonalDatabase();
-
-        initializeLoginPage(); // Start with the login/registration
-    }
-
-    private void initializeLoginPage() {
-        // Check if there's a currently logged-in user
-        currentUser = getCurrentLoggedInUser();
-        if (currentUser != null) {
-            // Auto-login based on the stored username
-            if (currentUser.equals("admin")) {
-                openMainInterface(true); // Admin functionality
-            } else {
-                personalDatabase.setUser(currentUser);
-                personalDatabase.loadFromFile(); // Load personal data
-                openMainInterface(false); // Open the main interface for regular users
-            }
-        } else {
-            // Show login/registration page
-            LoginAndRegistrationPage loginPage = new LoginAndRegistrationPage();
-
-            loginPage.setLoginListener((isAdmin, username) -> {
-                saveCurrentUser(username); // Save the current logged-in user
-
-                if (isAdmin) {
-                    openMainInterface(true); // Admin functionality
-                } else {
-                    currentUser = username; // Store the current username
-                    personalDatabase.setUser(username);
-                    personalDatabase.loadFromFile(); // Load personal data
-                    openMainInterface(false); // Open the main interface for regular users
-                }
-            });
-
-            loginPage.setVisible(true);
-        }
-    }
-
-    private void openMainInterface(boolean isAdmin) {
-        MainInterface mainInterface = new MainInterface(isAdmin);
-
-        mainInterface.setGeneralDatabaseListener(() -> {
-            new GeneralDatabaseGUI(generalDatabase, personalDatabase, !isAdmin);
-        });
-
-        if (isAdmin) {
-            mainInterface.setAdminInterfaceListener(() -> new AdminInterface(generalDatabase));
-        } else {
-            mainInterface.setPersonalDatabaseListener(() -> {
-                new PersonalDatabaseGUI(personalDatabase, generalDatabase, currentUser); // Include the current username
-            });
-        }
-
-        mainInterface.setLogoutListener(() -> {
-            logout(); // Handle logout
-            initializeLoginPage(); // Return to login/registration
-        });
-
-        mainInterface.setVisible(true);
-    }
-
-    private void saveCurrentUser(String username) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(CURRENT_USER_FILE))) {
-            writer.write(username);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private String getCurrentLoggedInUser() {
-        File file = new File(CURRENT_USER_FILE);
-        if (file.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(CURRENT_USER_FILE))) {
-                return reader.readLine().trim();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-        return null;
-    }
-
-    private void logout() {
-        File file = new File(CURRENT_USER_FILE);
-        if (file.exists()) {
-            file.delete(); // Delete the file to log out
-        }
-
-        personalDatabase.saveToFile(); // Save personal books on logout
-    }
-
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(MainApp::new);
-    }
+import javax.swing.*;
+import java.io.*;
+
+public class MainApp {
+    private GeneralDatabase generalDatabase;
+    private PersonalDatabase personalDatabase;
+    private PersonalLibraryCache libraryCache;
+    private static final long CACHED_LIBRARY_BOOKS = 100_000; // Books kept in memory across all cached users
+    private static final String CURRENT_USER_FILE = "current_user.txt";
+    private String currentUser;
+
+    public MainApp() {
+        generalDatabase = new GeneralDatabase(); // Loads the catalog once, from the snapshot when it is fresh
+
+        personalDatabase = new PersonalDatabase();
+        libraryCache = new PersonalLibraryCache(CACHED_LIBRARY_BOOKS);
+        Runtime.getRuntime().addShutdownHook(new Thread(libraryCache::flush)); // Write back unsaved libraries
+
+        initializeLoginPage(); // Start with the login/registration
+    }
+
+    private void initializeLoginPage() {
+        // Check if there's a currently logged-in user
+        currentUser = getCurrentLoggedInUser();
+        if (currentUser != null) {
+            // Auto-login based on the stored username
+            if (currentUser.equals("admin")) {
+                openMainInterface(true); // Admin functionality
+            } else {
+                personalDatabase = libraryCache.get(currentUser); // Parsed only if not cached
+                openMainInterface(false); // Open the main interface for regular users
+            }
+        } else {
+            // Show login/registration page
+            LoginAndRegistrationPage loginPage = new LoginAndRegistrationPage();
+
+            loginPage.setLoginListener((isAdmin, username) -> {
+                saveCurrentUser(username); // Save the current logged-in user
+
+                if (isAdmin) {
+                    openMainInterface(true); // Admin functionality
+                } else {
+                    currentUser = username; // Store the current username
+                    personalDatabase = libraryCache.get(username); // Parsed only if not cached
+                    openMainInterface(false); // Open the main interface for regular users
+                }
+            });
+
+            loginPage.setVisible(true);
+        }
+    }
+
+    private void openMainInterface(boolean isAdmin) {
+        MainInterface mainInterface = new MainInterface(isAdmin);
+
+        mainInterface.setGeneralDatabaseListener(() -> {
+            generalDatabase.refresh(); // Show changes made by other instances sharing the catalog
+            new GeneralDatabaseGUI(generalDatabase, personalDatabase, !isAdmin);
+        });
+
+        if (isAdmin) {
+            mainInterface.setAdminInterfaceListener(() -> {
+                generalDatabase.refresh();
+                new AdminInterface(generalDatabase);
+            });
+            mainInterface.setDiagnosticsListener(DiagnosticsFrame::new); // Live metrics of this process
+        } else {
+            mainInterface.setPersonalDatabaseListener(() -> {
+                new PersonalDatabaseGUI(personalDatabase, generalDatabase, currentUser); // Include the current username
+            });
+        }
+
+        mainInterface.setLogoutListener(() -> {
+            logout(); // Handle logout
+            initializeLoginPage(); // Return to login/registration
+        });
+
+        mainInterface.setVisible(true);
+    }
+
+    private void saveCurrentUser(String username) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(CURRENT_USER_FILE))) {
+            writer.write(username);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private String getCurrentLoggedInUser() {
+        File file = new File(CURRENT_USER_FILE);
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(CURRENT_USER_FILE))) {
+                return reader.readLine().trim();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return null;
+    }
+
+    private void logout() {
+        File file = new File(CURRENT_USER_FILE);
+        if (file.exists()) {
+            file.delete(); // Delete the file to log out
+        }
+
+        if (currentUser != null) {
+            ReadingSessionTracker.getInstance().stop(currentUser); // Credit the open reading session
+        }
+        personalDatabase.saveToFile(); // Save personal books on logout
+    }
+
+    public static void main(String[] args) {
+        UserRegistry.getInstance(); // Opened here, not on the EDT: the first start hashes every legacy account
+        SwingUtilities.invokeLater(MainApp::new);
+    }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ public class MainInterface extends JFrame {
     private JButton generalDatabaseButton;
     private JButton personalDatabaseButton; // Only for users
     private JButton adminInterfaceButton; // Only for admins
+    private JButton diagnosticsButton; // Only for admins
     private JButton logoutButton;
 
     public MainInterface(boolean isAdmin) {
@@ -40,6 +41,15 @@ public class MainInterface extends JFrame {
 
             gbc.gridy = 1;
             panel.add(adminInterfaceButton, gbc);
+
+            // Diagnostics Button
+            diagnosticsButton = new JButton("Diagnostics");
+            diagnosticsButton.setFont(new Font("Verdana", Font.BOLD, 18));
+            diagnosticsButton.setForeground(Color.BLACK);
+            diagnosticsButton.setBackground(new Color(0, 153, 153));
+
+            gbc.gridy = 2;
+            panel.add(diagnosticsButton, gbc);
         } else {
             // Personal Database Button
             personalDatabaseButton = new JButton("Personal Database");
@@ -57,7 +67,7 @@ public class MainInterface extends JFrame {
         logoutButton.setForeground(Color.BLACK);
         logoutButton.setBackground(new Color(255, 0, 0)); // Red color for logout
 
-        gbc.gridy = 2; // Position in the next row
+        gbc.gridy = 3; // Position in the next row
         panel.add(logoutButton, gbc);
 
         add(panel, BorderLayout.CENTER);
@@ -83,6 +93,12 @@ public class MainInterface extends JFrame {
         }
     }
 
+    public void setDiagnosticsListener(Runnable listener) {
+        if (diagnosticsButton != null) {
+            diagnosticsButton.addActionListener(e -> listener.run());
+        }
+    }
+
     public void setLogoutListener(Runnable listener) {
         logoutButton.addActionListener(e -> listener.run());
     }
@@ -0,0 +1,179 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// Process-wide registry of counters, gauges and latency timers. Instrumented code looks its metrics
+// up once into static fields; updating them afterwards is a LongAdder or histogram increment, no locks.
+// The admin Diagnostics window reads it live, headless runs can dump it periodically.
+public class Metrics {
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> TIMERS = new ConcurrentHashMap<>(); // Nanoseconds
+    private static ScheduledExecutorService dumper;
+
+    // One metric as shown in the Diagnostics window; times are in milliseconds
+    public static class Sample {
+        private final String name;
+        private final String type;
+        private final long count;
+        private final double mean;
+        private final double p50;
+        private final double p99;
+        private final double max;
+
+        private Sample(String name, String type, long count, double mean, double p50, double p99, double max) {
+            this.name = name;
+            this.type = type;
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        // The value of a counter or gauge, the number of timed calls of a timer
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getP50() {
+            return p50;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+
+        public double getMax() {
+            return max;
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    // Sampled when a snapshot is taken; registering the same name again replaces the supplier
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    // Record elapsed System.nanoTime() differences
+    public static LatencyHistogram timer(String name) {
+        return TIMERS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    // Every metric, sorted by name
+    public static List<Sample> snapshot() {
+        List<Sample> samples = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry : COUNTERS.entrySet()) {
+            samples.add(new Sample(entry.getKey(), "counter", entry.getValue().sum(), 0, 0, 0, 0));
+        }
+        for (Map.Entry<String, LongSupplier> entry : GAUGES.entrySet()) {
+            long value;
+            try {
+                value = entry.getValue().getAsLong();
+            } catch (RuntimeException e) {
+                value = -1; // A gauge must never break the snapshot
+            }
+            samples.add(new Sample(entry.getKey(), "gauge", value, 0, 0, 0, 0));
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : TIMERS.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            samples.add(new Sample(entry.getKey(), "timer", histogram.getCount(), histogram.getMean() / 1e6,
+                histogram.getPercentile(50) / 1e6, histogram.getPercentile(99) / 1e6, histogram.getMax() / 1e6));
+        }
+        samples.sort(Comparator.comparing(Sample::getName));
+        return samples;
+    }
+
+    public static void reset() {
+        for (LongAdder counter : COUNTERS.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : TIMERS.values()) {
+            histogram.reset();
+        }
+    }
+
+    public static String toText() {
+        StringBuilder sb = new StringBuilder();
+        for (Sample sample : snapshot()) {
+            if (sample.type.equals("timer")) {
+                sb.append(String.format("%-28s %8d calls  mean %9.3f ms  p50 %9.3f ms  p99 %9.3f ms  max %9.3f ms%n",
+                    sample.name, sample.count, sample.mean, sample.p50, sample.p99, sample.max));
+            } else {
+                sb.append(String.format("%-28s %8d%n", sample.name, sample.count));
+            }
+        }
+        return sb.toString();
+    }
+
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder("{\"timestamp\":").append(System.currentTimeMillis()).append(",\"metrics\":[");
+        List<Sample> samples = snapshot();
+        for (int i = 0; i < samples.size(); i++) {
+            Sample sample = samples.get(i);
+            sb.append(i > 0 ? "," : "").append("{\"name\":").append(Json.quote(sample.name))
+              .append(",\"type\":").append(Json.quote(sample.type));
+            if (sample.type.equals("timer")) {
+                sb.append(String.format(Locale.ROOT, ",\"count\":%d,\"meanMs\":%.3f,\"p50Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                    sample.count, sample.mean, sample.p50, sample.p99, sample.max));
+            } else {
+                sb.append(",\"value\":").append(sample.count).append('}');
+            }
+        }
+        return sb.append("]}").toString();
+    }
+
+    // Every period, hands the text form to textSink and replaces jsonFile with the JSON form; either
+    // may be null. The caller decides where the text goes, the library never prints on its own
+    public static synchronized void startPeriodicDump(long periodSeconds, Consumer<String> textSink, File jsonFile) {
+        if (dumper != null || periodSeconds <= 0) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            if (textSink != null) {
+                textSink.accept(toText());
+            }
+            if (jsonFile != null) {
+                writeJson(jsonFile);
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public static void writeJson(File jsonFile) {
+        File tempFile = new File(jsonFile.getPath() + ".tmp");
+        try {
+            Files.write(tempFile.toPath(), toJson().getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile.toPath(), jsonFile.toPath(), StandardCopyOption.REPLACE_EXISTING); // Readers never see half a dump
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle file write error
+        }
+    }
+}
@@ -1,6 +1,9 @@
 import java.util.*;
 
 public class PersonalBook extends GeneralBook {
+    // Every status a book can have; the GUI, the server and the load tools all offer these
+    public static final List<String> STATUSES = List.of("Not Started", "Ongoing", "Completed");
+
     private String status;
     private int timeSpent;
     private String startDate;
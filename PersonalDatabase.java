@@ -1,114 +1,233 @@
-import java.io.*;
-import java.util.*;
-
-public class PersonalDatabase {
-    private List<PersonalBook> personalBooks; 
-    private String currentUser;
-
-    public PersonalDatabase() {
-        personalBooks = new ArrayList<>();
-        currentUser = "";
-    }
-
-    public void setUser(String username) {
-        this.currentUser = username;
-        loadFromFile(); // Load the user's personal books
-    }
-
-    public List<PersonalBook> getPersonalBooks() {
-        return new ArrayList<>(personalBooks); // Return a copy for safety
-    }
-
-    public void addPersonalBook(PersonalBook book) {
-        personalBooks.add(book);
-        saveToFile(); // Save the updated personal database
-    }
-
-    public PersonalBook getPersonalBook(String title) {
-        return personalBooks.stream()
-            .filter(book -> book.getTitle().equalsIgnoreCase(title)) // Case-insensitive match
-            .findFirst()
-            .orElse(null);
-    }
-
-    public void deletePersonalBook(String title) {
-        boolean removed = personalBooks.removeIf(book -> book.getTitle().equalsIgnoreCase(title));
-        if (removed) {
-            saveToFile(); // Only save if something was removed
-        }
-    }
-
-    public void saveToFile() {
-        if (currentUser.isEmpty()) {
-            return; // If there's no current user, don't save
-        }
-
-        String filePath = currentUser + ".csv"; // Filename based on the current user
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            for (PersonalBook book : personalBooks) {
-                StringBuilder sb = new StringBuilder();
-
-                sb.append(book.getTitle()).append(",")
-                  .append(book.getAuthor()).append(",")
-                  .append(book.getStatus()).append(",")
-                  .append(book.getTimeSpent()).append(",")
-                  .append(book.getStartDate()).append(",") // Include start date
-                  .append(book.getEndDate()); // Include end date
-
-                // Append user ratings
-                for (double rating : book.getUserRatings()) {
-                    sb.append(",").append(rating);
-                }
-
-                // Append user reviews
-                for (String review : book.getUserReviews()) {
-                    sb.append(",").append(review);
-                }
-
-                writer.write(sb.toString()); // Write to the CSV file
-                writer.newLine(); // Move to the next line
-            }
-        } catch (IOException e) {
-            e.printStackTrace(); // Handle potential IO exceptions
-        }
-    }
-
-    public void loadFromFile() {
-        if (currentUser.isEmpty()) {
-            return; // If there's no current user, there's nothing to load
-        }
-
-        String filePath = currentUser + ".csv"; // Filename based on the current user
-        personalBooks.clear(); // Clear any existing data
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(","); // Split at commas to separate data
-                if (parts.length >= 6) { // Ensure enough parts for expected data
-                    PersonalBook book = new PersonalBook(parts[0], parts[1]);
-                    book.setStatus(parts[2]);
-                    book.addTimeSpent(Integer.parseInt(parts[3]));
-                    book.setStartDate(parts[4]);
-                    book.setEndDate(parts[5]);
-
-                    // Process user ratings and reviews
-                    for (int i = 6; i < parts.length; i++) {
-                        try {
-                            double rating = Double.parseDouble(parts[i]); // Attempt to parse as rating
-                            book.addUserRating(rating);
-                        } catch (NumberFormatException ex) {
-                            book.addUserReview(parts[i]); // Otherwise, treat as a review
-                        }
-                    }
-
-                    personalBooks.add(book); // Add the book to the list
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace(); // Handle potential IO exceptions
-        }
-    }
-    
-}
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class PersonalDatabase {
+    private static final LatencyHistogram LOAD_TIMER = Metrics.timer("library.load");
+    private static final LatencyHistogram SAVE_TIMER = Metrics.timer("library.save");
+
+    private List<PersonalBook> personalBooks; 
+    private String currentUser;
+    private File directory; // Holds <user>.csv; null for the working directory
+    private boolean dirty; // In-memory changes not yet written to <user>.csv
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public PersonalDatabase() {
+        personalBooks = new ArrayList<>();
+        currentUser = "";
+    }
+
+    // A library loaded for one user, as held by PersonalLibraryCache
+    public PersonalDatabase(String username) {
+        this(null, username);
+    }
+
+    public PersonalDatabase(File directory, String username) {
+        this();
+        this.directory = directory;
+        setUser(username);
+    }
+
+    // Held around every change and save: the windows, request threads, the reading-session tracker
+    // and cache evictions all use it. Not the monitor, so a virtual thread saving under it keeps its carrier.
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
+    public String getUser() {
+        return currentUser;
+    }
+
+    // Records a change made to a book in place that has not been saved yet
+    public void markDirty() {
+        dirty = true;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void setUser(String username) {
+        this.currentUser = username;
+        loadFromFile(); // Load the user's personal books
+    }
+
+    public List<PersonalBook> getPersonalBooks() {
+        return new ArrayList<>(personalBooks); // Return a copy for safety
+    }
+
+    // Read-only live view for table models; no copy, reflects later changes
+    public List<PersonalBook> getPersonalBookView() {
+        return Collections.unmodifiableList(personalBooks);
+    }
+
+    public void addPersonalBook(PersonalBook book) {
+        lock.lock();
+        try {
+            personalBooks.add(book);
+            saveToFile(); // Save the updated personal database
+        } finally {
+            lock.unlock();
+        }
+        RecommendationEngine.bookChanged(directory, currentUser, book);
+    }
+
+    // Adds the user's rating to the book; the caller updates the catalog and saves
+    public void rateBook(PersonalBook book, double rating) {
+        book.addUserRating(rating);
+        RecommendationEngine.bookChanged(directory, currentUser, book);
+    }
+
+    public PersonalBook getPersonalBook(String title) {
+        return personalBooks.stream()
+            .filter(book -> book.getTitle().equalsIgnoreCase(title)) // Case-insensitive match
+            .findFirst()
+            .orElse(null);
+    }
+
+    // Sets a new reading status and stamps the start or end date it implies; the caller saves
+    public void changeStatus(PersonalBook book, String newStatus) {
+        book.setStatus(newStatus);
+
+        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yy");
+        String currentDate = sdf.format(new Date());
+
+        if (newStatus.equals("Ongoing")) {
+            if (book.getStartDate().equals("N/A")) {
+                book.setStartDate(currentDate); // Set the start date if not already set
+            }
+        } else if (newStatus.equals("Completed")) {
+            book.setEndDate(currentDate); // Set the end date
+        }
+    }
+
+    public void deletePersonalBook(String title) {
+        boolean removed;
+        lock.lock();
+        try {
+            removed = personalBooks.removeIf(book -> book.getTitle().equalsIgnoreCase(title));
+            if (removed) {
+                saveToFile(); // Only save if something was removed
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (removed) {
+            RecommendationEngine.bookRemoved(directory, currentUser, title);
+        }
+    }
+
+    public void saveToFile() {
+        lock.lock(); // Also taken by evictions and the session tracker, which save from other threads
+        try {
+            if (currentUser.isEmpty()) {
+                return; // If there's no current user, don't save
+            }
+
+            String filePath = currentUser + ".csv"; // Filename based on the current user
+
+            File file = new File(directory, filePath);
+            LibraryEvents.LibrarySave event = new LibraryEvents.LibrarySave();
+            event.begin();
+            long start = System.nanoTime();
+            try (CsvWriter writer = new CsvWriter(file)) {
+                dirty = false; // Changes made after this point need another save
+                for (PersonalBook book : personalBooks) {
+                    writer.field(book.getTitle())
+                          .field(book.getAuthor())
+                          .field(book.getStatus())
+                          .field(book.getTimeSpent())
+                          .field(book.getStartDate()) // Include start date
+                          .field(book.getEndDate()); // Include end date
+
+                    // Append user ratings
+                    for (double rating : book.getUserRatings()) {
+                        writer.field(Double.toString(rating));
+                    }
+
+                    // Append user reviews
+                    for (String review : book.getUserReviews()) {
+                        writer.field(review);
+                    }
+
+                    writer.endRow(); // Write to the CSV file
+                }
+            } catch (IOException e) {
+                dirty = true; // Still unsaved, retry on the next save
+                e.printStackTrace(); // Handle potential IO exceptions
+            }
+            SAVE_TIMER.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.user = currentUser;
+                event.file = file.getPath();
+                event.books = personalBooks.size();
+                event.bytesWritten = file.length();
+                event.commit();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Maps one CSV row to a personal book; runs on parser threads
+    private static PersonalBook parseRow(CsvReader.Row row) {
+        if (row.size() < 6) { // Ensure enough parts for expected data
+            return null;
+        }
+        PersonalBook book = new PersonalBook(row.get(0), row.get(1));
+        book.setStatus(row.get(2));
+        try {
+            book.addTimeSpent(Integer.parseInt(row.get(3)));
+        } catch (NumberFormatException ex) {
+            // Keep zero time for a malformed value
+        }
+        book.setStartDate(row.get(4));
+        book.setEndDate(row.get(5));
+
+        // Process user ratings and reviews
+        for (int i = 6; i < row.size(); i++) {
+            String value = row.get(i);
+            try {
+                book.addUserRating(Double.parseDouble(value)); // Attempt to parse as rating
+            } catch (NumberFormatException ex) {
+                book.addUserReview(value); // Otherwise, treat as a review
+            }
+        }
+        return book;
+    }
+
+    public void loadFromFile() {
+        if (currentUser.isEmpty()) {
+            return; // If there's no current user, there's nothing to load
+        }
+
+        String filePath = currentUser + ".csv"; // Filename based on the current user
+        personalBooks.clear(); // Clear any existing data
+        dirty = false;
+
+        File file = new File(directory, filePath);
+        if (!file.exists()) {
+            return; // New users start with an empty library
+        }
+
+        LibraryEvents.LibraryLoad event = new LibraryEvents.LibraryLoad();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            personalBooks.addAll(CsvReader.read(file, false, PersonalDatabase::parseRow));
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle potential IO exceptions
+        }
+        LOAD_TIMER.record(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.user = currentUser;
+            event.file = file.getPath();
+            event.books = personalBooks.size();
+            event.commit();
+        }
+    }
+    
+}
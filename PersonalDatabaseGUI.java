@@ -1,259 +1,340 @@
-import javax.swing.*;
-import javax.swing.table.*;
-import java.awt.*;
-import java.awt.event.*;
-import java.text.SimpleDateFormat;
-import java.util.*;
-import java.util.Timer;
-
-public class PersonalDatabaseGUI extends JFrame {
-    private JTable personalTable;
-    private DefaultTableModel personalTableModel;
-    private TableRowSorter<DefaultTableModel> sorter;
-    private JTextField searchField;
-    private PersonalDatabase personalDatabase;
-    private GeneralDatabase generalDatabase;
-    private Timer readingTimer;
-    private String currentUsername; // To track the current user's name
-
-    public PersonalDatabaseGUI(PersonalDatabase personalDatabase, GeneralDatabase generalDatabase, String currentUsername) {
-        this.personalDatabase = personalDatabase;
-        this.generalDatabase = generalDatabase;
-        this.currentUsername = currentUsername; // Get the current user's name
-
-        setTitle("Personal Database");
-        setSize(800, 600);
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        setLayout(new BorderLayout());
-
-        personalTableModel = new DefaultTableModel(new Object[]{
-            "Title", "Author", "Rating", "Status", "Time Spent (min)", "Start Date", "End Date", "User Rating", "User Review"
-        }, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Prevent editing directly in the table
-            }
-        };
-
-        personalTable = new JTable(personalTableModel);
-        sorter = new TableRowSorter<>(personalTableModel); // For sorting and filtering
-        personalTable.setRowSorter(sorter);
-
-        populatePersonalTable(); // Load personal data into the table
-
-        // Search functionality
-        searchField = new JTextField(20);
-        searchField.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                String text = searchField.getText().toLowerCase();
-                if (text.trim().isEmpty()) {
-                    sorter.setRowFilter(null); // Clear filter
-                } else {
-                    sorter.setRowFilter(RowFilter.regexFilter(text)); // Apply filter
-                }
-            }
-        });
-
-        JPanel searchPanel = new JPanel();
-        searchPanel.add(new JLabel("Search:"));
-        searchPanel.add(searchField);
-
-        // Button panel for interactions
-        JButton rateBookButton = new JButton("Rate Book");
-        rateBookButton.addActionListener(e -> rateBook());
-
-        JButton writeReviewButton = new JButton("Write Review");
-        writeReviewButton.addActionListener(e -> writeReview());
-
-        JButton changeStatusButton = new JButton("Change Status");
-        changeStatusButton.addActionListener(e -> changeBookStatus());
-
-        JButton deleteBookButton = new JButton("Delete Book");
-        deleteBookButton.addActionListener(e -> deleteBook());
-
-        JPanel buttonPanel = new JPanel();
-        buttonPanel.add(rateBookButton);
-        buttonPanel.add(writeReviewButton);
-        buttonPanel.add(changeStatusButton);
-        buttonPanel.add(deleteBookButton);
-
-        add(new JScrollPane(personalTable), BorderLayout.CENTER); // Table with scroll pane
-        add(searchPanel, BorderLayout.NORTH); // Search bar at the top
-        add(buttonPanel, BorderLayout.SOUTH); // Buttons at the bottom
-
-        setVisible(true); // Display the interface
-    }
-
-    // Method to populate the personal table with data
-    private void populatePersonalTable() {
-        personalTableModel.setRowCount(0); // Clear existing rows
-
-        for (PersonalBook book : personalDatabase.getPersonalBooks()) {
-            personalTableModel.addRow(new Object[]{
-                book.getTitle(),
-                book.getAuthor(),
-                book.getAverageRating() == -1 ? "No rating" : String.format("%.2f", book.getAverageRating()),
-                book.getStatus(),
-                book.getTimeSpent(),
-                book.getStartDate(),
-                book.getEndDate(),
-                book.getUserRatings().isEmpty() ? "No rating" : String.format("%.2f", book.getUserRatings().get(0)),
-                book.getUserReviews().isEmpty() ? "No reviews" : String.join(", ", book.getUserReviews())
-            });
-        }
-    }
-
-    // Method to start the reading timer
-    private void startReadingTimer(PersonalBook book) {
-        if (readingTimer != null) {
-            readingTimer.cancel(); // Cancel any existing timer
-        }
-
-        readingTimer = new Timer();
-        readingTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                book.addTimeSpent(1); // Increment time spent by 1 minute
-                personalDatabase.saveToFile(); // Save to the personal database
-                populatePersonalTable(); // Refresh the table
-            }
-        }, 60000, 60000); // Schedule every minute
-    }
-
-    // Method to stop the reading timer
-    private void stopReadingTimer() {
-        if (readingTimer != null) {
-            readingTimer.cancel(); // Cancel the timer
-            readingTimer = null; // Clear the reference
-        }
-    }
-
-    // Method to change the book status
-    private void changeBookStatus() {
-        int selectedRow = personalTable.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(this, "Please select a book to change its status.");
-            return;
-        }
-
-        int modelRowIndex = personalTable.convertRowIndexToModel(selectedRow); // Adjust for sorting
-
-        String title = (String) personalTableModel.getValueAt(modelRowIndex, 0);
-        PersonalBook book = personalDatabase.getPersonalBook(title);
-
-        Object[] statusOptions = {"Not Started", "Ongoing", "Completed"};
-        String newStatus = (String) JOptionPane.showInputDialog(
-            this,
-            "Select a new status:",
-            "Change Status",
-            JOptionPane.QUESTION_MESSAGE,
-            null,
-            statusOptions,
-            book.getStatus() // Default to current status
-        );
-
-        if (newStatus != null) {
-            book.setStatus(newStatus);
-
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yy");
-            String currentDate = sdf.format(new Date());
-
-            if (newStatus.equals("Ongoing")) {
-                if (book.getStartDate().equals("N/A")) {
-                    book.setStartDate(currentDate); // Set the start date if not already set
-                }
-
-                startReadingTimer(book); // Start the reading timer
-            } else {
-                stopReadingTimer(); // Stop the reading timer
-                if (newStatus.equals("Completed")) {
-                    book.setEndDate(currentDate); // Set the end date
-                }
-            }
-
-            personalDatabase.saveToFile(); // Save changes to the personal database
-            populatePersonalTable(); // Refresh the table
-        }
-    }
-
-    private void rateBook() {
-        int selectedRow = personalTable.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(this, "Please select a book to rate.");
-            return;
-        }
-
-        int modelRowIndex = personalTable.convertRowIndexToModel(selectedRow); // Adjust for sorting
-
-        String title = (String) personalTableModel.getValueAt(modelRowIndex, 0);
-        PersonalBook book = personalDatabase.getPersonalBook(title);
-
-        String ratingStr = JOptionPane.showInputDialog(this, "Enter your rating (1-5):");
-
-        try {
-            double rating = Double.parseDouble(ratingStr);
-            if (rating < 1 || rating > 5) {
-                JOptionPane.showMessageDialog(this, "Please enter a valid rating between 1 and 5.");
-                return;
-            }
-
-            book.addUserRating(rating); // Add user rating
-            generalDatabase.updateBookRating(book.getTitle(), rating); // Update the general database
-            personalDatabase.saveToFile(); // Save to personal database
-            populatePersonalTable(); // Refresh the table
-        } catch (NumberFormatException ex) {
-            JOptionPane.showMessageDialog(this, "Invalid rating. Please enter a valid number.");
-        }
-    }
-
-    private void writeReview() {
-        int selectedRow = personalTable.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(this, "Please select a book to write a review.");
-            return;
-        }
-
-        int modelRowIndex = personalTable.convertRowIndexToModel(selectedRow);
-
-        String title = (String) personalTableModel.getValueAt(modelRowIndex, 0);
-        PersonalBook book = personalDatabase.getPersonalBook(title);
-
-        String reviewText = JOptionPane.showInputDialog(this, "Write your review:");
-
-        if (reviewText != null && !reviewText.trim().isEmpty()) {
-            // Prepend the current username to the review text
-            String fullReview = currentUsername + ": " + reviewText;
-
-            book.addUserReview(fullReview); // Add user review
-            generalDatabase.addReviewToGeneralBook(title, fullReview); // Update the general database
-            personalDatabase.saveToFile(); 
-            populatePersonalTable(); // Refresh the table
-        }
-    }
-
-    private void deleteBook() {
-        int selectedRow = personalTable.getSelectedRow();
-        if (selectedRow == -1) {
-            JOptionPane.showMessageDialog(this, "Please select a book to delete.");
-            return;
-        }
-
-        int modelRowIndex = personalTable.convertRowIndexToModel(selectedRow);
-
-        String title = (String) personalTableModel.getValueAt(modelRowIndex, 0);
-
-        int confirmDelete = JOptionPane.showConfirmDialog(
-            this,
-            "Are you sure you want to delete \"" + title + "\" from your personal database?",
-            "Confirm Deletion",
-            JOptionPane.YES_NO_OPTION
-        );
-
-        if (confirmDelete == JOptionPane.YES_OPTION) {
-            personalDatabase.deletePersonalBook(title); // Delete from the personal database
-            personalDatabase.saveToFile(); // Save changes
-            populatePersonalTable(); // Refresh the table to reflect the deletion
-        }
-    }
-}
\ No newline at end of file
+import javax.swing.*;
+import javax.swing.event.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.util.*;
+import java.util.List;
+import java.util.function.Predicate;
+
+public class PersonalDatabaseGUI extends JFrame {
+    private JTable personalTable;
+    private PersonalTableModel personalTableModel;
+    private JTextField searchField;
+    private SearchExecutor searchExecutor;
+    private static final int SEARCH_DEBOUNCE_MS = 150;
+    private static final int RECOMMENDATIONS = 20;
+    private PersonalDatabase personalDatabase;
+    private GeneralDatabase generalDatabase;
+    private Runnable sessionListener; // Refreshes the table when reading time is credited
+    private String currentUsername; // To track the current user's name
+
+    public PersonalDatabaseGUI(PersonalDatabase personalDatabase, GeneralDatabase generalDatabase, String currentUsername) {
+        this.personalDatabase = personalDatabase;
+        this.generalDatabase = generalDatabase;
+        this.currentUsername = currentUsername; // Get the current user's name
+
+        setTitle("Personal Database");
+        setSize(800, 600);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        // Rows are read from the personal library on demand; cells are not editable
+        personalTableModel = new PersonalTableModel(personalDatabase.getPersonalBookView());
+
+        personalTable = new JTable(personalTableModel);
+        personalTableModel.installHeaderSorting(personalTable); // For sorting
+
+        populatePersonalTable(); // Load personal data into the table
+
+        // Search functionality
+        searchField = new JTextField(20);
+        searchExecutor = new SearchExecutor(SEARCH_DEBOUNCE_MS);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                scheduleSearch();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                scheduleSearch();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                scheduleSearch();
+            }
+        });
+
+        JPanel searchPanel = new JPanel();
+        searchPanel.add(new JLabel("Search:"));
+        searchPanel.add(searchField);
+
+        // Button panel for interactions
+        JButton rateBookButton = new JButton("Rate Book");
+        rateBookButton.addActionListener(e -> rateBook());
+
+        JButton writeReviewButton = new JButton("Write Review");
+        writeReviewButton.addActionListener(e -> writeReview());
+
+        JButton changeStatusButton = new JButton("Change Status");
+        changeStatusButton.addActionListener(e -> changeBookStatus());
+
+        JButton deleteBookButton = new JButton("Delete Book");
+        deleteBookButton.addActionListener(e -> deleteBook());
+
+        JButton recommendButton = new JButton("Recommended for You");
+        recommendButton.addActionListener(e -> showRecommendations());
+
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(rateBookButton);
+        buttonPanel.add(writeReviewButton);
+        buttonPanel.add(changeStatusButton);
+        buttonPanel.add(deleteBookButton);
+        buttonPanel.add(recommendButton);
+
+        add(new JScrollPane(personalTable), BorderLayout.CENTER); // Table with scroll pane
+        add(searchPanel, BorderLayout.NORTH); // Search bar at the top
+        add(buttonPanel, BorderLayout.SOUTH); // Buttons at the bottom
+
+        // Reading time is credited by the shared tracker; only repaint here, on the EDT
+        sessionListener = () -> SwingUtilities.invokeLater(this::populatePersonalTable);
+        ReadingSessionTracker.getInstance().addSessionListener(sessionListener);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                ReadingSessionTracker.getInstance().removeSessionListener(sessionListener); // Sessions keep running
+                searchExecutor.cancel(); // Drop any pending search for a closed window
+            }
+        });
+
+        setVisible(true); // Display the interface
+    }
+
+    // Filters a copy of the rows on the search worker and publishes the final permutation on the EDT,
+    // where the model recomputes it if books were added or deleted meanwhile
+    private void scheduleSearch() {
+        String text = searchField.getText().trim().toLowerCase(Locale.ROOT);
+        Predicate<PersonalBook> filter = text.isEmpty() ? null : book -> PersonalTableModel.matches(book, text);
+        List<PersonalBook> rows = personalTableModel.snapshotRows(); // The library list is only changed on the EDT
+        searchExecutor.submit(() -> {
+            LibraryEvents.SearchFilter event = new LibraryEvents.SearchFilter();
+            event.begin();
+            BookTableModel.View<PersonalBook> view = personalTableModel.buildView(rows, filter);
+            event.end();
+            if (event.shouldCommit()) {
+                event.table = "Personal library";
+                event.query = text;
+                event.rows = view.size();
+                event.commit();
+            }
+            return view;
+        }, view -> personalTableModel.showView(filter, view));
+    }
+
+    // Method to populate the personal table with data
+    private void populatePersonalTable() {
+        LibraryEvents.TableRefresh event = new LibraryEvents.TableRefresh();
+        event.begin();
+        personalTableModel.refresh(); // Values are computed lazily for visible rows only
+        event.end();
+        if (event.shouldCommit()) {
+            event.table = "Personal library";
+            event.rows = personalTableModel.getRowCount();
+            event.commit();
+        }
+    }
+
+    // Method to start the reading session
+    private void startReadingTimer(PersonalBook book) {
+        ReadingSessionTracker.getInstance().start(currentUsername, personalDatabase, book); // Ends any previous session
+    }
+
+    // Method to stop the reading session and credit its time
+    private void stopReadingTimer() {
+        ReadingSessionTracker.getInstance().stop(currentUsername);
+    }
+
+    // Method to change the book status
+    private void changeBookStatus() {
+        int selectedRow = personalTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a book to change its status.");
+            return;
+        }
+
+        PersonalBook book = personalTableModel.getRow(selectedRow); // The model resolves sorting/filtering
+
+        Object[] statusOptions = PersonalBook.STATUSES.toArray();
+        String newStatus = (String) JOptionPane.showInputDialog(
+            this,
+            "Select a new status:",
+            "Change Status",
+            JOptionPane.QUESTION_MESSAGE,
+            null,
+            statusOptions,
+            book.getStatus() // Default to current status
+        );
+
+        if (newStatus != null) {
+            personalDatabase.getLock().lock(); // The session tracker credits and saves this library from its own thread
+            try {
+                personalDatabase.changeStatus(book, newStatus); // Also stamps the start or end date
+
+                if (newStatus.equals("Ongoing")) {
+                    startReadingTimer(book); // Start the reading timer
+                } else {
+                    stopReadingTimer(); // Stop the reading timer
+                }
+
+                personalDatabase.saveToFile(); // Save changes to the personal database
+            } finally {
+                personalDatabase.getLock().unlock();
+            }
+            populatePersonalTable(); // Refresh the table
+        }
+    }
+
+    private void rateBook() {
+        int selectedRow = personalTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a book to rate.");
+            return;
+        }
+
+        PersonalBook book = personalTableModel.getRow(selectedRow); // The model resolves sorting/filtering
+
+        String ratingStr = JOptionPane.showInputDialog(this, "Enter your rating (1-5):");
+
+        try {
+            double rating = Double.parseDouble(ratingStr);
+            if (!(rating >= 1 && rating <= 5)) { // Also rejects NaN
+                JOptionPane.showMessageDialog(this, "Please enter a valid rating between 1 and 5.");
+                return;
+            }
+
+            personalDatabase.getLock().lock();
+            try {
+                personalDatabase.rateBook(book, rating); // Add user rating
+                generalDatabase.updateBookRating(book.getTitle(), rating); // Update the general database
+                personalDatabase.saveToFile(); // Save to personal database
+            } finally {
+                personalDatabase.getLock().unlock();
+            }
+            populatePersonalTable(); // Refresh the table
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Invalid rating. Please enter a valid number.");
+        }
+    }
+
+    private void writeReview() {
+        int selectedRow = personalTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a book to write a review.");
+            return;
+        }
+
+        PersonalBook book = personalTableModel.getRow(selectedRow); // The model resolves sorting/filtering
+        String title = book.getTitle();
+
+        String reviewText = JOptionPane.showInputDialog(this, "Write your review:");
+
+        if (reviewText != null && !reviewText.trim().isEmpty()) {
+            // Prepend the current username to the review text
+            String fullReview = currentUsername + ": " + reviewText;
+
+            personalDatabase.getLock().lock();
+            try {
+                book.addUserReview(fullReview); // Add user review
+                generalDatabase.addReviewToGeneralBook(title, fullReview); // Update the general database
+                personalDatabase.saveToFile();
+            } finally {
+                personalDatabase.getLock().unlock();
+            }
+            populatePersonalTable(); // Refresh the table
+        }
+    }
+
+    private void deleteBook() {
+        int selectedRow = personalTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a book to delete.");
+            return;
+        }
+
+        String title = personalTableModel.getRow(selectedRow).getTitle();
+
+        int confirmDelete = JOptionPane.showConfirmDialog(
+            this,
+            "Are you sure you want to delete \"" + title + "\" from your personal database?",
+            "Confirm Deletion",
+            JOptionPane.YES_NO_OPTION
+        );
+
+        if (confirmDelete == JOptionPane.YES_OPTION) {
+            personalDatabase.deletePersonalBook(title); // Delete from the personal database; saves under the library lock
+            populatePersonalTable(); // Refresh the table to reflect the deletion
+        }
+    }
+
+    // Books read by people with similar libraries; the engine answers from memory, only its first
+    // use waits for the scan of all libraries, which happens off the EDT
+    private void showRecommendations() {
+        new SwingWorker<List<GeneralBook>, Void>() {
+            @Override
+            protected List<GeneralBook> doInBackground() {
+                List<GeneralBook> books = new ArrayList<>();
+                for (String title : RecommendationEngine.getInstance().recommend(currentUsername, RECOMMENDATIONS,
+                        title -> generalDatabase.findByTitle(title) != null)) { // Skip books removed from the catalog
+                    GeneralBook book = generalDatabase.findByTitle(title);
+                    if (book != null) { // Removed since the engine checked
+                        books.add(book);
+                    }
+                }
+                return books;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    showRecommendations(get());
+                } catch (Exception e) {
+                    e.printStackTrace(); // Handle recommendation error
+                }
+            }
+        }.execute();
+    }
+
+    private void showRecommendations(List<GeneralBook> books) {
+        if (books.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No recommendations yet. Add or rate a few books first.");
+            return;
+        }
+
+        DefaultListModel<String> listModel = new DefaultListModel<>();
+        for (GeneralBook book : books) {
+            listModel.addElement(book.getTitle() + " by " + book.getAuthor());
+        }
+        JList<String> list = new JList<>(listModel);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        JDialog dialog = new JDialog(this, "Recommended for You", false);
+        dialog.setSize(500, 400);
+        dialog.setLayout(new BorderLayout());
+
+        JButton addButton = new JButton("Add to Library");
+        addButton.addActionListener(e -> {
+            int index = list.getSelectedIndex();
+            if (index == -1) {
+                JOptionPane.showMessageDialog(dialog, "Please select a book to add to your personal library.");
+                return;
+            }
+            GeneralBook book = books.get(index);
+            if (personalDatabase.getPersonalBook(book.getTitle()) != null) {
+                JOptionPane.showMessageDialog(dialog, "This book is already in your personal library.");
+                return;
+            }
+            personalDatabase.addPersonalBook(new PersonalBook(book.getTitle(), book.getAuthor()));
+            listModel.remove(index);
+            books.remove(index);
+            populatePersonalTable(); // Refresh the table
+        });
+
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(addButton);
+        dialog.add(new JScrollPane(list), BorderLayout.CENTER);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+}
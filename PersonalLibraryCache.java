@@ -0,0 +1,137 @@
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Keeps recently used personal libraries in memory so switching users is a lookup, not a CSV parse.
+// Entries are ordered by access; when the libraries held together exceed the book budget, the
+// least recently used ones are evicted, writing back any unsaved changes first. An evicted library
+// may still be open in a window or a request, so it is handed out again while anyone holds it;
+// a second copy loaded from disk would overwrite the first one's changes on save.
+public class PersonalLibraryCache {
+    private static class Counters {
+        private long hits;
+        private long misses;
+    }
+
+    private final long maxBooks;
+    private final ReentrantLock lock = new ReentrantLock(); // Loads and evictions do file I/O under it, so not the monitor
+    private final LinkedHashMap<String, PersonalDatabase> libraries = new LinkedHashMap<>(16, 0.75f, true); // Access order
+    private final Map<String, WeakReference<PersonalDatabase>> evicted = new HashMap<>(); // Cleared once unused
+    private final Map<String, Counters> counters = new HashMap<>();
+
+    public PersonalLibraryCache(long maxBooks) {
+        this.maxBooks = maxBooks;
+    }
+
+    // The user's library, loaded from <user>.csv only when it is not cached
+    public PersonalDatabase get(String username) {
+        lock.lock();
+        try {
+            Counters userCounters = counters.computeIfAbsent(username, u -> new Counters());
+            PersonalDatabase library = libraries.get(username);
+            if (library != null) {
+                userCounters.hits++;
+                return library;
+            }
+            library = reachable(evicted.remove(username));
+            if (library != null) {
+                userCounters.hits++; // Still in use somewhere, back into the cache
+            } else {
+                userCounters.misses++;
+                library = new PersonalDatabase(username);
+            }
+            libraries.put(username, library);
+            evictIfNeeded();
+            return library;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Saves every library with unsaved changes, e.g. before the application exits
+    public void flush() {
+        lock.lock();
+        try {
+            for (PersonalDatabase library : libraries.values()) {
+                if (library.isDirty()) {
+                    library.saveToFile();
+                }
+            }
+            for (WeakReference<PersonalDatabase> reference : evicted.values()) {
+                PersonalDatabase library = reference.get();
+                if (library != null && library.isDirty()) {
+                    library.saveToFile(); // Changed after eviction by whoever still holds it
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(String username) {
+        lock.lock();
+        try {
+            PersonalDatabase library = libraries.remove(username);
+            if (library == null) {
+                library = reachable(evicted.remove(username));
+            }
+            if (library != null && library.isDirty()) {
+                library.saveToFile();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits(String username) {
+        lock.lock();
+        try {
+            Counters userCounters = counters.get(username);
+            return userCounters == null ? 0 : userCounters.hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMisses(String username) {
+        lock.lock();
+        try {
+            Counters userCounters = counters.get(username);
+            return userCounters == null ? 0 : userCounters.misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return libraries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Libraries grow after they are cached, so their weight is measured at eviction time
+    private void evictIfNeeded() {
+        long totalBooks = 0;
+        for (PersonalDatabase library : libraries.values()) {
+            totalBooks += library.getPersonalBookView().size();
+        }
+        evicted.values().removeIf(reference -> reference.get() == null);
+        Iterator<Map.Entry<String, PersonalDatabase>> eldestFirst = libraries.entrySet().iterator();
+        while (totalBooks > maxBooks && libraries.size() > 1) { // The newest entry always stays
+            Map.Entry<String, PersonalDatabase> eldest = eldestFirst.next();
+            if (eldest.getValue().isDirty()) {
+                eldest.getValue().saveToFile(); // Write back before dropping it
+            }
+            totalBooks -= eldest.getValue().getPersonalBookView().size();
+            evicted.put(eldest.getKey(), new WeakReference<>(eldest.getValue()));
+            eldestFirst.remove();
+        }
+    }
+
+    private static PersonalDatabase reachable(WeakReference<PersonalDatabase> reference) {
+        return reference == null ? null : reference.get();
+    }
+}
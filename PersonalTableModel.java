@@ -0,0 +1,67 @@
+import java.util.*;
+
+// Personal library rows for PersonalDatabaseGUI
+public class PersonalTableModel extends BookTableModel<PersonalBook> {
+    private static final String[] COLUMNS = {
+        "Title", "Author", "Rating", "Status", "Time Spent (min)", "Start Date", "End Date", "User Rating", "User Review"
+    };
+
+    public PersonalTableModel(List<PersonalBook> books) {
+        super(COLUMNS, books);
+    }
+
+    @Override
+    protected Object valueAt(PersonalBook book, int column) {
+        switch (column) {
+            case 0:
+                return book.getTitle();
+            case 1:
+                return book.getAuthor();
+            case 2:
+                return book.getAverageRating() == -1 ? "No rating" : String.format("%.2f", book.getAverageRating());
+            case 3:
+                return book.getStatus();
+            case 4:
+                return book.getTimeSpent();
+            case 5:
+                return book.getStartDate();
+            case 6:
+                return book.getEndDate();
+            case 7:
+                return book.getUserRatings().isEmpty() ? "No rating" : String.format("%.2f", book.getUserRatings().get(0));
+            default:
+                return book.getUserReviews().isEmpty() ? "No reviews" : String.join(", ", book.getUserReviews());
+        }
+    }
+
+    @Override
+    protected Comparator<PersonalBook> comparator(int column) {
+        switch (column) {
+            case 0:
+                return Comparator.comparing(PersonalBook::getTitle, String.CASE_INSENSITIVE_ORDER);
+            case 1:
+                return Comparator.comparing(PersonalBook::getAuthor, String.CASE_INSENSITIVE_ORDER);
+            case 2:
+                return Comparator.comparingDouble(PersonalBook::getAverageRating);
+            case 3:
+                return Comparator.comparing(PersonalBook::getStatus);
+            case 4:
+                return Comparator.comparingInt(PersonalBook::getTimeSpent);
+            case 5:
+                return Comparator.comparing(PersonalBook::getStartDate);
+            case 6:
+                return Comparator.comparing(PersonalBook::getEndDate);
+            case 7:
+                return Comparator.comparingDouble(book -> book.getUserRatings().isEmpty() ? -1 : book.getUserRatings().get(0));
+            default:
+                return Comparator.comparingInt(book -> book.getUserReviews().size());
+        }
+    }
+
+    // Plain substring match over the text columns, no regex compilation
+    public static boolean matches(PersonalBook book, String lowerCaseText) {
+        return book.getTitle().toLowerCase(Locale.ROOT).contains(lowerCaseText)
+            || book.getAuthor().toLowerCase(Locale.ROOT).contains(lowerCaseText)
+            || book.getStatus().toLowerCase(Locale.ROOT).contains(lowerCaseText);
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.Arrays;
+
+// Rating aggregates for many books kept in index-aligned primitive arrays.
+// Each book owns one slot: an exact sum of ratings in tenths, a count and a 1-5 star histogram.
+// Updates only touch primitives, so rating a book never allocates.
+public class RatingStore {
+    public static final int STARS = 5;
+
+    private long[] sumTenths;
+    private int[] counts;
+    private int[] histogram; // STARS entries per slot
+    private int size;
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+
+    public RatingStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        sumTenths = new long[capacity];
+        counts = new int[capacity];
+        histogram = new int[capacity * STARS];
+    }
+
+    public int allocate() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount]; // Reuse slots of removed books
+        }
+        if (size == counts.length) {
+            int capacity = counts.length * 2;
+            sumTenths = Arrays.copyOf(sumTenths, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            histogram = Arrays.copyOf(histogram, capacity * STARS);
+        }
+        return size++;
+    }
+
+    public void release(int slot) {
+        sumTenths[slot] = 0;
+        counts[slot] = 0;
+        Arrays.fill(histogram, slot * STARS, (slot + 1) * STARS, 0);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, Math.max(8, freeCount * 2));
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    public void add(int slot, double rating) {
+        sumTenths[slot] += Math.round(rating * 10);
+        counts[slot]++;
+        histogram[slot * STARS + starIndex(rating)]++;
+    }
+
+    public void restore(int slot, long ratingSumTenths, int ratingCount, int[] stars) {
+        sumTenths[slot] = ratingSumTenths;
+        counts[slot] = ratingCount;
+        System.arraycopy(stars, 0, histogram, slot * STARS, STARS);
+    }
+
+    public long getSumTenths(int slot) {
+        return sumTenths[slot];
+    }
+
+    public int getCount(int slot) {
+        return counts[slot];
+    }
+
+    // star is 1-5
+    public int getStarCount(int slot, int star) {
+        return histogram[slot * STARS + star - 1];
+    }
+
+    public int[] getHistogram(int slot) {
+        return Arrays.copyOfRange(histogram, slot * STARS, (slot + 1) * STARS);
+    }
+
+    // Fractional ratings land on the nearest whole star
+    public static int starIndex(double rating) {
+        int star = (int) Math.round(rating);
+        return Math.min(STARS, Math.max(1, star)) - 1;
+    }
+}
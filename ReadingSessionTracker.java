@@ -0,0 +1,203 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Tracks reading sessions for every user in the process on one shared scheduler thread.
+// A session is a start and a stop event timed with System.nanoTime(); reading time is credited
+// to the book when the session stops and at coarse checkpoints while it runs, and the library is
+// saved each time, so a crash loses less than one checkpoint interval of reading. Events also go to
+// an append-only log as a history of sessions. With no sessions open nothing is scheduled at all.
+// Credits take the library's lock before the tracker's, the same order as LibraryServer and the
+// windows, which start and stop sessions while holding the library.
+// Both are ReentrantLocks because the session log is written under them, often on virtual threads.
+public class ReadingSessionTracker {
+    private static final String SESSION_LOG_FILE = "reading_sessions.log";
+    private static final long CHECKPOINT_MINUTES = 5;
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private static ReadingSessionTracker instance;
+
+    private static class Session {
+        private final PersonalDatabase library;
+        private final PersonalBook book;
+        private final long startNanos;
+        private long creditedNanos; // Time already added to the book
+
+        private Session(PersonalDatabase library, PersonalBook book, long startNanos) {
+            this.library = library;
+            this.book = book;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private final File logFile;
+    private final ReentrantLock lock = new ReentrantLock(); // Guards sessions and checkpointTask
+    private final Map<String, Session> sessions = new HashMap<>(); // One open session per user
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private ScheduledFuture<?> checkpointTask; // Only scheduled while sessions are open
+
+    public ReadingSessionTracker(File logFile) {
+        this.logFile = logFile;
+        scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "reading-sessions");
+            thread.setDaemon(true); // Never keeps the application alive
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    public static synchronized ReadingSessionTracker getInstance() {
+        if (instance == null) {
+            instance = new ReadingSessionTracker(new File(SESSION_LOG_FILE));
+        }
+        return instance;
+    }
+
+    // Notified after time was credited to a book; runs on the tracker's thread or the caller's
+    public void addSessionListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeSessionListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    // Starts timing a book; a user reads one book at a time, so their previous session ends here
+    public void start(String username, PersonalDatabase library, PersonalBook book) {
+        if (isReading(username, book)) {
+            return; // Already reading this book
+        }
+        stop(username); // Outside the tracker's lock, stop takes the library's lock first
+        lock.lock();
+        try {
+            sessions.put(username, new Session(library, book, System.nanoTime()));
+            logEvent("START", username, book.getTitle(), 0);
+            if (checkpointTask == null) {
+                checkpointTask = scheduler.scheduleAtFixedRate(this::checkpoint,
+                    CHECKPOINT_MINUTES, CHECKPOINT_MINUTES, TimeUnit.MINUTES);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ends the user's open session, if any, and credits the remaining time
+    public void stop(String username) {
+        Session session = openSession(username);
+        if (session == null) {
+            return;
+        }
+        session.library.getLock().lock();
+        try {
+            lock.lock();
+            try {
+                if (sessions.get(username) != session) {
+                    return; // Stopped or replaced meanwhile
+                }
+                sessions.remove(username);
+                int minutes = credit(session, true);
+                logEvent("STOP", username, session.book.getTitle(), minutes);
+                if (sessions.isEmpty() && checkpointTask != null) {
+                    checkpointTask.cancel(false); // Idle again, nothing left to wake up for
+                    checkpointTask = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            session.library.saveToFile(); // Checkpoints saved earlier credits, this saves the rest
+        } finally {
+            session.library.getLock().unlock();
+        }
+        fireSessionsChanged();
+    }
+
+    public boolean isReading(String username, PersonalBook book) {
+        Session session = openSession(username);
+        return session != null && session.book == book;
+    }
+
+    private Session openSession(String username) {
+        lock.lock();
+        try {
+            return sessions.get(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Credits whole minutes read so far and saves the libraries that gained time
+    private void checkpoint() {
+        Map<String, Session> open;
+        lock.lock();
+        try {
+            open = new HashMap<>(sessions);
+        } finally {
+            lock.unlock();
+        }
+        boolean credited = false;
+        for (Map.Entry<String, Session> entry : open.entrySet()) {
+            Session session = entry.getValue();
+            session.library.getLock().lock();
+            try {
+                int minutes;
+                lock.lock();
+                try {
+                    if (sessions.get(entry.getKey()) != session) {
+                        continue; // Stopped meanwhile, already credited
+                    }
+                    minutes = credit(session, false);
+                    if (minutes > 0) {
+                        logEvent("CHECKPOINT", entry.getKey(), session.book.getTitle(), minutes);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (minutes > 0) {
+                    session.library.saveToFile(); // Outside the tracker's lock, other users' sessions go on
+                    credited = true;
+                }
+            } finally {
+                session.library.getLock().unlock();
+            }
+        }
+        if (credited) {
+            fireSessionsChanged();
+        }
+    }
+
+    // Whole minutes since the last credit; a final credit rounds the remainder to the nearest minute.
+    // Callers hold the library's lock and then the tracker's
+    private int credit(Session session, boolean finish) {
+        long uncredited = System.nanoTime() - session.startNanos - session.creditedNanos;
+        long minutes = finish ? (uncredited + NANOS_PER_MINUTE / 2) / NANOS_PER_MINUTE : uncredited / NANOS_PER_MINUTE;
+        if (minutes > 0) {
+            session.creditedNanos += minutes * NANOS_PER_MINUTE;
+            session.book.addTimeSpent((int) minutes);
+            session.library.markDirty();
+        }
+        return (int) minutes;
+    }
+
+    // One tab-separated line per event: wall-clock time, event, user, title, minutes credited
+    private void logEvent(String event, String username, String title, int minutes) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8)) {
+            writer.write(System.currentTimeMillis() + "\t" + event + "\t" + clean(username) + "\t" + clean(title)
+                + "\t" + minutes + "\n");
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle session log write error
+        }
+    }
+
+    private static String clean(String value) {
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private void fireSessionsChanged() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+}
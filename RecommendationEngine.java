@@ -0,0 +1,387 @@
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Item-item collaborative filtering over every personal library. Books are numbered once and the
+// co-occurrence matrix is kept as one primitive int -> float map per book, holding for each pair of
+// books the sum over users of the product of their preference weights. Similarity is the cosine of
+// those sums, so a recommendation is a walk over the neighbours of the user's own books.
+// The matrix is built by scanning all <user>.csv files in parallel, then kept current by
+// PersonalDatabase as books are added, rated and deleted.
+public class RecommendationEngine {
+    private static final LatencyHistogram BUILD_TIMER = Metrics.timer("recommend.build");
+    private static final LatencyHistogram QUERY_TIMER = Metrics.timer("recommend.query");
+    private static final int USER_PAGE_SIZE = 1000;
+    private static final int MAX_SCANNED_BOOKS = 200; // Most recent books per library; pairs grow with the square
+
+    private static volatile RecommendationEngine instance;
+
+    private final File directory; // Holds the <user>.csv files; null for the working directory
+    private final UserRegistry registry;
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    private final Map<String, Integer> itemIds = new HashMap<>(); // Case-folded title -> book number
+    private final List<String> itemTitles = new ArrayList<>();
+    private IntFloatMap[] neighbours = new IntFloatMap[0];
+    private double[] norms = new double[0]; // Sum of squared weights per book
+    private final Map<String, IntFloatMap> userItems = new HashMap<>(); // User -> book number -> weight
+    private List<Object[]> pending = new ArrayList<>(); // {user, title, weight} changes seen during the scan
+
+    // Open-addressing map from non-negative ints to floats with linear probing
+    private static final class IntFloatMap {
+        private int[] keys;
+        private float[] values;
+        private int size;
+
+        private IntFloatMap(int expected) {
+            int capacity = 4;
+            while (capacity < expected * 2) {
+                capacity <<= 1;
+            }
+            keys = new int[capacity];
+            values = new float[capacity];
+            Arrays.fill(keys, -1);
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int i = (key * 0x9E3779B9) >>> 1 & mask;
+            while (keys[i] != -1 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private float get(int key) {
+            int i = slot(key);
+            return keys[i] == key ? values[i] : 0;
+        }
+
+        private boolean containsKey(int key) {
+            return keys[slot(key)] == key;
+        }
+
+        private void add(int key, float delta) {
+            int i = slot(key);
+            if (keys[i] == key) {
+                values[i] += delta;
+                return;
+            }
+            keys[i] = key;
+            values[i] = delta;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+        }
+
+        private void put(int key, float value) {
+            int i = slot(key);
+            if (keys[i] != key) {
+                add(key, value);
+            } else {
+                values[i] = value;
+            }
+        }
+
+        // Backward-shift deletion keeps every probe sequence unbroken without tombstones
+        private void remove(int key) {
+            int mask = keys.length - 1;
+            int i = slot(key);
+            if (keys[i] != key) {
+                return;
+            }
+            size--;
+            int next = (i + 1) & mask;
+            while (keys[next] != -1) {
+                int home = (keys[next] * 0x9E3779B9) >>> 1 & mask;
+                if (((next - home) & mask) >= ((next - i) & mask)) {
+                    keys[i] = keys[next];
+                    values[i] = values[next];
+                    i = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[i] = -1;
+            values[i] = 0;
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            float[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new float[oldKeys.length * 2];
+            Arrays.fill(keys, -1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    // The engine for the libraries in the working directory; the first call starts the scan
+    public static RecommendationEngine getInstance() {
+        if (instance == null) {
+            synchronized (RecommendationEngine.class) {
+                if (instance == null) {
+                    RecommendationEngine engine = new RecommendationEngine(null, UserRegistry.getInstance());
+                    engine.start();
+                    instance = engine;
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Called by PersonalDatabase after a book was added or rated; a no-op until the engine is in use
+    static void bookChanged(File directory, String username, PersonalBook book) {
+        RecommendationEngine engine = instance;
+        if (engine != null && Objects.equals(directory, engine.directory)) {
+            engine.update(username, book.getTitle(), weight(book));
+        }
+    }
+
+    static void bookRemoved(File directory, String username, String title) {
+        RecommendationEngine engine = instance;
+        if (engine != null && Objects.equals(directory, engine.directory)) {
+            engine.remove(username, title);
+        }
+    }
+
+    RecommendationEngine(File directory, UserRegistry registry) {
+        this.directory = directory;
+        this.registry = registry;
+    }
+
+    void start() {
+        Thread thread = new Thread(this::build, "recommendations");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // How much a user's copy of a book says about their taste: a rated book counts its mean rating
+    // minus the middle of the 1-5 scale, so 3 stars says nothing and fewer count against the book's
+    // neighbours; an unrated book in the library counts like 4 stars
+    static float weight(PersonalBook book) {
+        List<Double> ratings = book.getUserRatings();
+        if (ratings.isEmpty()) {
+            return 1;
+        }
+        double sum = 0;
+        for (double rating : ratings) {
+            sum += rating;
+        }
+        return (float) (sum / ratings.size() - 3);
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        try {
+            List<String> usernames = new ArrayList<>();
+            long cursor = 0;
+            do {
+                UserRegistry.Page page = registry.listUsers(null, cursor, USER_PAGE_SIZE);
+                usernames.addAll(page.getUsernames());
+                cursor = page.getNextCursor();
+            } while (cursor >= 0);
+
+            // Parse every library in parallel; only titles and weights are kept
+            List<Object[]> libraries = usernames.parallelStream()
+                .filter(username -> new File(directory, username + ".csv").isFile())
+                .map(username -> {
+                    List<PersonalBook> books = new PersonalDatabase(directory, username).getPersonalBookView();
+                    List<PersonalBook> recent = books.subList(Math.max(0, books.size() - MAX_SCANNED_BOOKS), books.size());
+                    String[] titles = new String[recent.size()];
+                    float[] weights = new float[recent.size()];
+                    for (int i = 0; i < titles.length; i++) {
+                        titles[i] = recent.get(i).getTitle();
+                        weights[i] = weight(recent.get(i));
+                    }
+                    return new Object[] {username, titles, weights};
+                })
+                .collect(Collectors.toList());
+
+            synchronized (this) {
+                List<int[]> items = new ArrayList<>();
+                List<float[]> weights = new ArrayList<>();
+                for (Object[] library : libraries) {
+                    String[] titles = (String[]) library[1];
+                    float[] bookWeights = (float[]) library[2];
+                    IntFloatMap owned = new IntFloatMap(titles.length);
+                    for (int i = 0; i < titles.length; i++) {
+                        owned.put(itemId(titles[i]), bookWeights[i]); // A duplicate row keeps the later weight
+                    }
+                    userItems.put((String) library[0], owned);
+                    int[] ids = new int[owned.size];
+                    float[] ownedWeights = new float[owned.size];
+                    for (int slot = 0, n = 0; slot < owned.keys.length; slot++) {
+                        if (owned.keys[slot] != -1) {
+                            ids[n] = owned.keys[slot];
+                            ownedWeights[n++] = owned.values[slot];
+                        }
+                    }
+                    items.add(ids);
+                    weights.add(ownedWeights);
+                }
+
+                // Each worker owns the rows of the books in its stripe, so no row is shared
+                int stripes = Math.max(1, Runtime.getRuntime().availableProcessors());
+                IntStream.range(0, stripes).parallel().forEach(stripe -> {
+                    for (int u = 0; u < items.size(); u++) {
+                        int[] ids = items.get(u);
+                        float[] userWeights = weights.get(u);
+                        for (int a = 0; a < ids.length; a++) {
+                            if (ids[a] % stripes != stripe) {
+                                continue;
+                            }
+                            norms[ids[a]] += userWeights[a] * userWeights[a];
+                            for (int b = 0; b < ids.length; b++) {
+                                if (b != a) {
+                                    row(ids[a]).add(ids[b], userWeights[a] * userWeights[b]);
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // Recommend from whatever was built
+        } finally {
+            synchronized (this) {
+                List<Object[]> changes = pending;
+                pending = null; // Even after a failed scan, later changes must apply directly
+                for (Object[] change : changes) {
+                    apply((String) change[0], (String) change[1], (Float) change[2]);
+                }
+            }
+            BUILD_TIMER.record(System.nanoTime() - start);
+            ready.complete(null);
+        }
+    }
+
+    // Sets the weight of one book in one user's library. Applying the same state twice is harmless,
+    // which is what lets changes made during the scan be replayed on top of it
+    public synchronized void update(String username, String title, float weight) {
+        if (pending != null) {
+            pending.add(new Object[] {username, title, weight});
+            return;
+        }
+        apply(username, title, weight);
+    }
+
+    public synchronized void remove(String username, String title) {
+        if (pending != null) {
+            pending.add(new Object[] {username, title, null});
+            return;
+        }
+        apply(username, title, null);
+    }
+
+    // A null weight takes the book out of the library
+    private void apply(String username, String title, Float weight) {
+        IntFloatMap owned = userItems.get(username);
+        if (owned == null) {
+            if (weight == null) {
+                return;
+            }
+            owned = new IntFloatMap(4);
+            userItems.put(username, owned);
+        }
+        int id = itemId(title);
+        boolean had = owned.containsKey(id);
+        float old = owned.get(id);
+        if (weight == null ? !had : had && old == weight) {
+            return; // Already in this state
+        }
+        owned.remove(id);
+        float next = weight == null ? 0 : weight;
+        float delta = next - old;
+        for (int slot = 0; slot < owned.keys.length && delta != 0; slot++) {
+            int other = owned.keys[slot];
+            if (other != -1) {
+                row(id).add(other, delta * owned.values[slot]);
+                row(other).add(id, delta * owned.values[slot]);
+            }
+        }
+        norms[id] += (double) next * next - (double) old * old;
+        if (weight != null) {
+            owned.put(id, weight); // Kept even at zero, so the book is never recommended back
+        }
+    }
+
+    // Up to limit titles the user does not have, best first; accept can drop titles such as
+    // books no longer in the catalog. Waits for the initial scan
+    public List<String> recommend(String username, int limit, Predicate<String> accept) {
+        ready.join();
+        long start = System.nanoTime();
+        List<String> titles = new ArrayList<>();
+        synchronized (this) {
+            IntFloatMap owned = userItems.get(username);
+            if (owned != null && owned.size > 0) {
+                IntFloatMap scores = new IntFloatMap(64);
+                for (int slot = 0; slot < owned.keys.length; slot++) {
+                    int item = owned.keys[slot];
+                    if (item == -1 || owned.values[slot] == 0 || neighbours[item] == null || norms[item] <= 0) {
+                        continue;
+                    }
+                    IntFloatMap row = neighbours[item];
+                    for (int n = 0; n < row.keys.length; n++) {
+                        int other = row.keys[n];
+                        if (other == -1 || row.values[n] == 0 || norms[other] <= 0 || owned.containsKey(other)) {
+                            continue;
+                        }
+                        double similarity = row.values[n] / Math.sqrt(norms[item] * norms[other]);
+                        scores.add(other, (float) (similarity * owned.values[slot]));
+                    }
+                }
+
+                // Best candidates first, checking accept only as far as needed; books that mostly
+                // resemble what the user disliked end up at or below zero and are left out
+                List<Integer> candidates = new ArrayList<>();
+                for (int slot = 0; slot < scores.keys.length; slot++) {
+                    if (scores.keys[slot] != -1 && scores.values[slot] > 0) {
+                        candidates.add(scores.keys[slot]);
+                    }
+                }
+                candidates.sort((a, b) -> Float.compare(scores.get(b), scores.get(a)));
+                for (int i = 0; i < candidates.size() && titles.size() < limit; i++) {
+                    String title = itemTitles.get(candidates.get(i));
+                    if (accept == null || accept.test(title)) {
+                        titles.add(title);
+                    }
+                }
+            }
+        }
+        QUERY_TIMER.record(System.nanoTime() - start);
+        return titles;
+    }
+
+    private int itemId(String title) {
+        String key = title.toLowerCase(Locale.ROOT); // Libraries match titles ignoring case
+        Integer id = itemIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        int next = itemTitles.size();
+        itemIds.put(key, next);
+        itemTitles.add(title);
+        if (next == neighbours.length) {
+            int capacity = Math.max(64, next * 2);
+            neighbours = Arrays.copyOf(neighbours, capacity);
+            norms = Arrays.copyOf(norms, capacity);
+        }
+        return next;
+    }
+
+    private IntFloatMap row(int item) {
+        if (neighbours[item] == null) {
+            neighbours[item] = new IntFloatMap(8);
+        }
+        return neighbours[item];
+    }
+}
@@ -0,0 +1,76 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Append-only store for general review text.
+// Every record is [long previous offset][int length][UTF-8 text]; the previous offset links a book's
+// reviews into a chain, so a book only needs the offset of its newest review and a count.
+public class ReviewLog implements Closeable {
+    public static final long NO_REVIEW = -1;
+
+    private final File file;
+    private RandomAccessFile raf;
+
+    public ReviewLog(File file) {
+        this.file = file;
+    }
+
+    // Appends a review behind the given chain head and returns the offset of the new head
+    public synchronized long append(long previousHead, String review) throws IOException {
+        RandomAccessFile log = open();
+        long offset = log.length();
+        byte[] utf8 = review.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(12 + utf8.length);
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeLong(previousHead);
+        record.writeInt(utf8.length);
+        record.write(utf8);
+        log.seek(offset);
+        log.write(bytes.toByteArray()); // One write per record
+        return offset;
+    }
+
+    // Reviews of one chain, newest first; skips the first pageIndex * pageSize entries
+    public synchronized List<String> readPage(long head, int pageIndex, int pageSize) throws IOException {
+        List<String> page = new ArrayList<>(pageSize);
+        if (head == NO_REVIEW) {
+            return page;
+        }
+        RandomAccessFile log = open();
+        long offset = head;
+        int toSkip = pageIndex * pageSize;
+        while (offset != NO_REVIEW && page.size() < pageSize) {
+            log.seek(offset);
+            long previous = log.readLong();
+            int length = log.readInt();
+            if (toSkip > 0) {
+                toSkip--; // Only the link is needed for skipped entries
+            } else {
+                byte[] utf8 = new byte[length];
+                log.readFully(utf8);
+                page.add(new String(utf8, StandardCharsets.UTF_8));
+            }
+            offset = previous;
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            raf = null;
+        }
+    }
+
+    private RandomAccessFile open() throws IOException {
+        if (raf == null) {
+            raf = new RandomAccessFile(file, "rw");
+        }
+        return raf;
+    }
+}
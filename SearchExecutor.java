@@ -0,0 +1,83 @@
+import javax.swing.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Runs search-box queries off the Swing event dispatch thread.
+// Keystrokes are debounced on a Swing timer; when it fires, any query still in flight is cancelled
+// and the latest one is handed to a background worker. Only the result of the newest query is
+// published back, on the EDT.
+public class SearchExecutor {
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-worker");
+        thread.setDaemon(true); // Never keeps the application alive
+        return thread;
+    });
+
+    private static final LatencyHistogram FILTER_TIMER = Metrics.timer("search.filter");
+    private static final LongAdder SUPERSEDED = Metrics.counter("search.superseded");
+
+    private final Timer debounceTimer;
+    private Callable<?> pendingQuery;
+    private Consumer<?> pendingConsumer;
+    private Future<?> inFlight;
+    private long generation; // Bumped per submitted query; stale results are dropped
+
+    public SearchExecutor(int debounceMillis) {
+        debounceTimer = new Timer(debounceMillis, e -> dispatch());
+        debounceTimer.setRepeats(false);
+    }
+
+    // Must be called on the EDT; restarts the debounce window
+    public <R> void submit(Callable<R> query, Consumer<R> onResult) {
+        pendingQuery = query;
+        pendingConsumer = onResult;
+        debounceTimer.restart();
+    }
+
+    public void cancel() {
+        debounceTimer.stop();
+        pendingQuery = null;
+        if (inFlight != null) {
+            inFlight.cancel(true);
+        }
+        generation++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch() {
+        if (pendingQuery == null) {
+            return;
+        }
+        Callable<Object> query = (Callable<Object>) pendingQuery;
+        Consumer<Object> onResult = (Consumer<Object>) pendingConsumer;
+        pendingQuery = null;
+        pendingConsumer = null;
+
+        if (inFlight != null) {
+            inFlight.cancel(true); // A newer keystroke supersedes the running query
+        }
+        long queryGeneration = ++generation;
+        inFlight = WORKER.submit(() -> {
+            Object result;
+            long start = System.nanoTime();
+            try {
+                result = query.call();
+                FILTER_TIMER.record(System.nanoTime() - start);
+            } catch (InterruptedException | CancellationException e) {
+                SUPERSEDED.increment();
+                return; // Superseded
+            } catch (Exception e) {
+                e.printStackTrace(); // Handle query failure
+                return;
+            }
+            if (!Thread.currentThread().isInterrupted()) {
+                SwingUtilities.invokeLater(() -> {
+                    if (queryGeneration == generation) {
+                        onResult.accept(result); // Only the newest query reaches the table
+                    }
+                });
+            }
+        });
+    }
+}
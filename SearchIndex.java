@@ -0,0 +1,157 @@
+import java.util.*;
+
+// Tokenizing inverted index over book titles, authors and review text.
+// Postings map each term to the books containing it with a field-weighted term frequency.
+// Queries are AND-ed across terms and ranked by tf-idf; the last term also matches as a prefix
+// so results keep up while the user is still typing a word.
+public class SearchIndex {
+    public static final int TITLE_WEIGHT = 3;
+    public static final int AUTHOR_WEIGHT = 2;
+    public static final int REVIEW_WEIGHT = 1;
+
+    private final TreeMap<String, Map<GeneralBook, Integer>> postings = new TreeMap<>(); // Sorted for prefix ranges
+    private final Map<GeneralBook, Map<String, Integer>> documentTerms = new IdentityHashMap<>(); // For removal
+
+    public synchronized void add(GeneralBook book) {
+        addText(book, book.getTitle(), TITLE_WEIGHT);
+        addText(book, book.getAuthor(), AUTHOR_WEIGHT);
+    }
+
+    public synchronized void addText(GeneralBook book, String text, int weight) {
+        Map<String, Integer> terms = documentTerms.computeIfAbsent(book, b -> new HashMap<>());
+        for (String term : tokenize(text)) {
+            terms.merge(term, weight, Integer::sum);
+            postings.computeIfAbsent(term, t -> new IdentityHashMap<>()).merge(book, weight, Integer::sum);
+        }
+    }
+
+    public synchronized void remove(GeneralBook book) {
+        Map<String, Integer> terms = documentTerms.remove(book);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<GeneralBook, Integer> books = postings.get(term);
+            books.remove(book);
+            if (books.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    // Swaps the indexed title and author of an edited book, keeping its review terms
+    public synchronized void reindex(GeneralBook book, String oldTitle, String oldAuthor) {
+        Map<String, Integer> terms = documentTerms.get(book);
+        if (terms == null) {
+            add(book);
+            return;
+        }
+        subtract(book, terms, oldTitle, TITLE_WEIGHT);
+        subtract(book, terms, oldAuthor, AUTHOR_WEIGHT);
+        add(book);
+    }
+
+    public synchronized List<GeneralBook> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Score each term separately, then intersect starting from the rarest term
+        List<Map<GeneralBook, Double>> perTerm = new ArrayList<>();
+        for (int i = 0; i < terms.size(); i++) {
+            Map<GeneralBook, Double> scores = i == terms.size() - 1
+                ? scorePrefix(terms.get(i))
+                : scoreTerm(terms.get(i));
+            if (scores.isEmpty()) {
+                return new ArrayList<>(); // AND semantics: one miss empties the result
+            }
+            perTerm.add(scores);
+        }
+        perTerm.sort(Comparator.comparingInt(Map::size));
+
+        Map<GeneralBook, Double> result = new IdentityHashMap<>(perTerm.get(0));
+        for (int i = 1; i < perTerm.size() && !result.isEmpty(); i++) {
+            Map<GeneralBook, Double> next = perTerm.get(i);
+            result.entrySet().removeIf(entry -> {
+                Double score = next.get(entry.getKey());
+                if (score == null) {
+                    return true;
+                }
+                entry.setValue(entry.getValue() + score);
+                return false;
+            });
+        }
+
+        List<Map.Entry<GeneralBook, Double>> ranked = new ArrayList<>(result.entrySet());
+        ranked.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+        List<GeneralBook> books = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            books.add(ranked.get(i).getKey());
+        }
+        return books;
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private void subtract(GeneralBook book, Map<String, Integer> terms, String text, int weight) {
+        for (String term : tokenize(text)) {
+            Integer remaining = terms.merge(term, -weight, Integer::sum);
+            Map<GeneralBook, Integer> books = postings.get(term);
+            if (remaining == null || remaining <= 0) {
+                terms.remove(term);
+                if (books != null) {
+                    books.remove(book);
+                    if (books.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            } else if (books != null) {
+                books.put(book, remaining);
+            }
+        }
+    }
+
+    private Map<GeneralBook, Double> scoreTerm(String term) {
+        Map<GeneralBook, Double> scores = new IdentityHashMap<>();
+        Map<GeneralBook, Integer> books = postings.get(term);
+        if (books != null) {
+            double idf = idf(books.size());
+            books.forEach((book, frequency) -> scores.put(book, frequency * idf));
+        }
+        return scores;
+    }
+
+    // Every indexed term starting with the prefix counts; a book keeps its best match
+    private Map<GeneralBook, Double> scorePrefix(String prefix) {
+        Map<GeneralBook, Double> scores = new IdentityHashMap<>();
+        for (Map.Entry<String, Map<GeneralBook, Integer>> entry : postings.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break; // Past the prefix range of the sorted dictionary
+            }
+            double idf = idf(entry.getValue().size());
+            entry.getValue().forEach((book, frequency) -> scores.merge(book, frequency * idf, Math::max));
+        }
+        return scores;
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (double) Math.max(documentTerms.size(), 1) / documentFrequency);
+    }
+}
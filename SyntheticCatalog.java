@@ -0,0 +1,92 @@
+import java.io.*;
+import java.util.*;
+
+// Deterministic made-up catalogs and personal libraries for benchmarks and load tests.
+// The same size and seed always produce the same files, so runs can be compared.
+public class SyntheticCatalog {
+    private static final String[] WORDS = {
+        "Silent", "River", "Garden", "Winter", "Shadow", "Empire", "Letters", "Night", "Ocean", "Stone",
+        "Glass", "Memory", "Journey", "Crown", "Forest", "Storm", "Mirror", "Harbor", "Iron", "Song",
+        "Desert", "Lantern", "Orchard", "Island", "Castle", "Secret", "Thunder", "Velvet", "Ember", "Bridge"
+    };
+    private static final String[] NAMES = {
+        "Anna", "Boris", "Clara", "Dmitri", "Elena", "Felix", "Greta", "Hugo", "Irina", "Jonas",
+        "Katya", "Leon", "Maria", "Nikolai", "Olga", "Pavel", "Rosa", "Sergei", "Tamara", "Viktor"
+    };
+
+    private SyntheticCatalog() {
+    }
+
+    // Unique for every index
+    public static String title(int index) {
+        return "The " + WORDS[index % WORDS.length] + " " + WORDS[(index / WORDS.length) % WORDS.length]
+            + " " + index;
+    }
+
+    // Roughly one author per ten books
+    public static String author(int index, int books) {
+        int author = index % Math.max(1, books / 10);
+        return NAMES[author % NAMES.length] + " " + WORDS[(author / NAMES.length) % WORDS.length] + "-" + author;
+    }
+
+    // Writes general.csv in the checkpoint format, with ratings but no reviews
+    public static void writeCatalog(File directory, int books, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (CsvWriter writer = new CsvWriter(new File(directory, "general.csv"))) {
+            writer.field("Title").field("Author").field("Average Rating").field("Rating Count").field("Review Count")
+                  .field("Rating Sum (tenths)").field("Star Histogram").field("Review Head");
+            writer.endRow();
+            for (int i = 0; i < books; i++) {
+                int[] stars = new int[RatingStore.STARS];
+                long sumTenths = 0;
+                int count = random.nextInt(21);
+                for (int r = 0; r < count; r++) {
+                    int star = random.nextInt(RatingStore.STARS);
+                    stars[star]++;
+                    sumTenths += (star + 1) * 10;
+                }
+                writer.field(title(i)).field(author(i, books));
+                if (count == 0) {
+                    writer.field("No rating");
+                } else {
+                    writer.fieldTwoDecimals(sumTenths / 10.0 / count);
+                }
+                writer.field(count).field(0).field(sumTenths);
+                writer.field(stars[0] + "/" + stars[1] + "/" + stars[2] + "/" + stars[3] + "/" + stars[4]);
+                writer.field(ReviewLog.NO_REVIEW);
+                writer.endRow();
+            }
+        }
+    }
+
+    // A made-up review of a few words
+    public static String review(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int words = 5 + random.nextInt(20);
+        for (int i = 0; i < words; i++) {
+            sb.append(i > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)].toLowerCase(Locale.ROOT));
+        }
+        return sb.append('.').toString();
+    }
+
+    // Writes <user>.csv in the personal library format, with books picked from a catalog of the given size
+    public static void writeLibrary(File directory, String username, int books, int catalogSize, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (CsvWriter writer = new CsvWriter(new File(directory, username + ".csv"))) {
+            for (int i = 0; i < books; i++) {
+                int index = random.nextInt(catalogSize);
+                writer.field(title(index)).field(author(index, catalogSize))
+                      .field(PersonalBook.STATUSES.get(random.nextInt(PersonalBook.STATUSES.size())))
+                      .field(random.nextInt(600))
+                      .field("N/A").field("N/A");
+                if (random.nextBoolean()) {
+                    writer.field(Double.toString(1 + random.nextInt(RatingStore.STARS)));
+                }
+                if (random.nextInt(4) == 0) {
+                    writer.field(review(random));
+                }
+                writer.endRow();
+            }
+        }
+    }
+}
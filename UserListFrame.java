@@ -0,0 +1,108 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+// Paged, searchable list of registered usernames for admins; passwords are never shown.
+// Each page reads only the part of users.log it displays, in a background worker.
+public class UserListFrame extends JFrame {
+    private static final int PAGE_SIZE = 50;
+
+    private final UserRegistry userRegistry;
+    private final DefaultListModel<String> listModel = new DefaultListModel<>();
+    private final JTextField searchField = new JTextField(15);
+    private final JButton previousButton = new JButton("Previous");
+    private final JButton nextButton = new JButton("Next");
+    private final JLabel statusLabel = new JLabel();
+    private final Deque<Long> previousCursors = new ArrayDeque<>(); // Start of every page before this one
+    private long cursor; // Start of the page on screen
+    private long nextCursor = -1;
+    private int pageNumber = 1;
+
+    public UserListFrame(UserRegistry userRegistry) {
+        super("Registered Users");
+        this.userRegistry = userRegistry;
+        setSize(400, 500);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        JPanel searchPanel = new JPanel();
+        searchPanel.add(new JLabel("Search:"));
+        searchPanel.add(searchField);
+        JButton searchButton = new JButton("Search");
+        searchPanel.add(searchButton);
+        searchButton.addActionListener(e -> firstPage());
+        searchField.addActionListener(e -> firstPage()); // Enter searches too
+
+        previousButton.addActionListener(e -> {
+            if (!previousCursors.isEmpty()) {
+                pageNumber--;
+                loadPage(previousCursors.pop());
+            }
+        });
+        nextButton.addActionListener(e -> {
+            if (nextCursor >= 0) {
+                previousCursors.push(cursor);
+                pageNumber++;
+                loadPage(nextCursor);
+            }
+        });
+
+        JPanel pagePanel = new JPanel();
+        pagePanel.add(previousButton);
+        pagePanel.add(statusLabel);
+        pagePanel.add(nextButton);
+
+        add(searchPanel, BorderLayout.NORTH);
+        add(new JScrollPane(new JList<>(listModel)), BorderLayout.CENTER);
+        add(pagePanel, BorderLayout.SOUTH);
+
+        firstPage();
+        setLocationRelativeTo(null);
+        setVisible(true);
+    }
+
+    private void firstPage() {
+        previousCursors.clear();
+        pageNumber = 1;
+        loadPage(0);
+    }
+
+    private void loadPage(long start) {
+        String filter = searchField.getText();
+        previousButton.setEnabled(false);
+        nextButton.setEnabled(false);
+        statusLabel.setText("Loading...");
+
+        new SwingWorker<UserRegistry.Page, Void>() {
+            private int total;
+
+            @Override
+            protected UserRegistry.Page doInBackground() {
+                total = userRegistry.getUserCount();
+                return userRegistry.listUsers(filter, start, PAGE_SIZE);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    UserRegistry.Page page = get();
+                    cursor = start;
+                    nextCursor = page.getNextCursor();
+                    listModel.clear();
+                    List<String> usernames = page.getUsernames();
+                    for (String username : usernames) {
+                        listModel.addElement(username);
+                    }
+                    statusLabel.setText("Page " + pageNumber + " (" + total + " users)");
+                } catch (Exception e) {
+                    e.printStackTrace(); // Handle registry read error
+                    statusLabel.setText("Could not read the user list");
+                }
+                previousButton.setEnabled(!previousCursors.isEmpty());
+                nextButton.setEnabled(nextCursor >= 0);
+            }
+        }.execute();
+    }
+}
@@ -0,0 +1,511 @@
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.*;
+import java.security.spec.InvalidKeySpecException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Registered users and the admin account, shared by the login page and the HTTP server.
+// Accounts are appended to users.log as [username][iterations][salt][PBKDF2 hash] and never rewritten.
+// users.idx is an open-addressing hash table of [username hash][log offset + 1] slots, so login and
+// registration read a few slots and one log record however many accounts exist. The index records
+// the log length it covers; when that does not match (a crash, another process) it is rebuilt.
+public class UserRegistry {
+    private static final String LEGACY_USER_FILE = "users.txt";
+    private static final String LOG_FILE = "users.log";
+    private static final String INDEX_FILE = "users.idx";
+    private static final String LOCK_FILE = "users.lock";
+    public static final String ADMIN_USERNAME = "admin";
+    private static final String ADMIN_PASSWORD = "admin";
+
+    private static final int INDEX_MAGIC = 0x05E41D10;
+    private static final int INDEX_HEADER_SIZE = 20; // Magic, capacity, count, covered log length
+    private static final int SLOT_SIZE = 12; // Username hash, log offset + 1 (0 = empty)
+    private static final int MIN_CAPACITY = 1024;
+
+    private static final String HASH_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int HASH_ITERATIONS = 120_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+
+    private static final long VERIFIED_TTL_NANOS = 2L * 60 * 1_000_000_000; // Remember a good password briefly
+    private static final int MAX_VERIFIED = 1024;
+
+    private static final LatencyHistogram VERIFY_TIMER = Metrics.timer("login.verify");
+    private static final LongAdder CACHED_LOGINS = Metrics.counter("login.cached");
+    private static final LongAdder FAILED_LOGINS = Metrics.counter("login.failed");
+
+    private static UserRegistry instance;
+
+    private final File logFile;
+    private final File indexFile;
+    private final CatalogLock lock; // Registrations from other processes sharing the directory
+    private RandomAccessFile log;
+    private RandomAccessFile index;
+    private int capacity;
+    private int count;
+    private long coveredLength; // Log length the index was built for
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Verified> verified = new LinkedHashMap<String, Verified>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Verified> eldest) {
+            return size() > MAX_VERIFIED;
+        }
+    };
+
+    // One page of the user list; pass the cursor back to get the next one
+    public static class Page {
+        private final List<String> usernames;
+        private final long nextCursor;
+
+        private Page(List<String> usernames, long nextCursor) {
+            this.usernames = usernames;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<String> getUsernames() {
+            return usernames;
+        }
+
+        public long getNextCursor() {
+            return nextCursor;
+        }
+
+        public boolean hasMore() {
+            return nextCursor >= 0;
+        }
+    }
+
+    private static class Record {
+        private final String username;
+        private final int iterations;
+        private final byte[] salt = new byte[SALT_BYTES];
+        private final byte[] hash = new byte[HASH_BYTES];
+
+        private Record(DataInput in) throws IOException {
+            username = in.readUTF();
+            iterations = in.readInt();
+            in.readFully(salt);
+            in.readFully(hash);
+        }
+    }
+
+    // A fast digest of a password that passed the slow check, valid until the deadline
+    private static class Verified {
+        private final byte[] digest;
+        private final long deadline;
+
+        private Verified(byte[] digest, long deadline) {
+            this.digest = digest;
+            this.deadline = deadline;
+        }
+    }
+
+    // The registry is opened once per process and shared
+    public static synchronized UserRegistry getInstance() {
+        if (instance == null) {
+            instance = new UserRegistry(new File(LOG_FILE), new File(INDEX_FILE), new File(LOCK_FILE));
+        }
+        return instance;
+    }
+
+    UserRegistry(File logFile, File indexFile, File lockFile) {
+        this.logFile = logFile;
+        this.indexFile = indexFile;
+        this.lock = new CatalogLock(lockFile);
+        lock.lock();
+        try {
+            boolean migrate = !logFile.exists();
+            log = new RandomAccessFile(logFile, "rw");
+            if (migrate) {
+                migrateLegacyUsers(new File(logFile.getParentFile(), LEGACY_USER_FILE));
+            }
+            File leftover = new File(logFile.getParentFile(), LEGACY_USER_FILE + ".migrated");
+            if (leftover.exists()) {
+                erase(leftover); // Kept by earlier versions after migrating
+            }
+            openIndex();
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle file open error
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isAdmin(String username, String password) {
+        return ADMIN_USERNAME.equals(username) && ADMIN_PASSWORD.equals(password);
+    }
+
+    // Runs the slow salted hash unless the same password was verified moments ago; call off the EDT
+    public boolean isUser(String username, String password) {
+        long start = System.nanoTime();
+        boolean valid = verify(username, password);
+        VERIFY_TIMER.record(System.nanoTime() - start);
+        if (!valid) {
+            FAILED_LOGINS.increment();
+        }
+        return valid;
+    }
+
+    private boolean verify(String username, String password) {
+        if (username == null || password == null) {
+            return false;
+        }
+        byte[] digest = fastDigest(username, password);
+        synchronized (this) {
+            Verified cached = verified.get(username);
+            if (cached != null && System.nanoTime() - cached.deadline < 0 && MessageDigest.isEqual(cached.digest, digest)) {
+                CACHED_LOGINS.increment();
+                return true;
+            }
+        }
+        Record record;
+        synchronized (this) {
+            record = lookup(username);
+        }
+        if (record == null || !MessageDigest.isEqual(record.hash, hash(password, record.salt, record.iterations))) {
+            return false;
+        }
+        synchronized (this) {
+            verified.put(username, new Verified(digest, System.nanoTime() + VERIFIED_TTL_NANOS));
+        }
+        return true;
+    }
+
+    public synchronized boolean exists(String username) {
+        return lookup(username) != null;
+    }
+
+    // False when the name is taken; hashes the password, so call off the EDT
+    public boolean register(String username, String password) {
+        if (ADMIN_USERNAME.equals(username)) {
+            return false;
+        }
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = hash(password, salt, HASH_ITERATIONS); // Outside the monitor, logins keep going
+        synchronized (this) {
+            lock.lock();
+            try {
+                catchUp();
+                if (find(username) != null) {
+                    return false;
+                }
+                append(username, HASH_ITERATIONS, salt, hash);
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace(); // Handle file write error
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public synchronized int getUserCount() {
+        if (!isCurrent()) {
+            lock.lock();
+            try {
+                catchUp();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    // Usernames in registration order starting at the cursor (0 for the first page), keeping those
+    // that contain the filter ignoring case; reads only as far as the page needs
+    public synchronized Page listUsers(String filter, long cursor, int limit) {
+        String needle = filter == null ? "" : filter.trim().toLowerCase(Locale.ROOT);
+        List<String> usernames = new ArrayList<>();
+        lock.lockShared(); // Never read a record another process is still appending
+        try {
+            long length = log.length();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log.getChannel().position(cursor))));
+            long position = cursor;
+            while (position < length && usernames.size() < limit) {
+                Record record = new Record(in);
+                position += recordSize(record.username);
+                if (needle.isEmpty() || record.username.toLowerCase(Locale.ROOT).contains(needle)) {
+                    usernames.add(record.username);
+                }
+            }
+            return new Page(usernames, position < length ? position : -1);
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle file read error
+            return new Page(usernames, -1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Probes the index under the shared file lock, so no writer is halfway through a slot or the
+    // header; catching up with other processes' registrations takes the exclusive lock
+    private Record lookup(String username) {
+        lock.lockShared();
+        try {
+            if (isCurrent()) {
+                return find(username);
+            }
+        } finally {
+            lock.unlock();
+        }
+        lock.lock();
+        try {
+            catchUp();
+            return find(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isCurrent() {
+        try {
+            return log.length() == coveredLength;
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle file read error
+            return false;
+        }
+    }
+
+    // Callers hold the file lock and have caught up with the log
+    private Record find(String username) {
+        int hash = username.hashCode();
+        try {
+            for (int probe = 0; probe < capacity; probe++) {
+                long slot = slotPosition((spread(hash) + probe) & (capacity - 1));
+                index.seek(slot);
+                int slotHash = index.readInt();
+                long offset = index.readLong();
+                if (offset == 0) {
+                    return null; // An empty slot ends the probe sequence
+                }
+                if (slotHash == hash) {
+                    Record record = readRecord(offset - 1);
+                    if (record.username.equals(username)) {
+                        return record;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle file read error
+        }
+        return null;
+    }
+
+    private Record readRecord(long offset) throws IOException {
+        log.seek(offset);
+        return new Record(log);
+    }
+
+    private void append(String username, int iterations, byte[] salt, byte[] hash) throws IOException {
+        if ((count + 1) * 2 > capacity) {
+            rebuildIndex(capacity * 2); // Keep the load factor under one half so probes stay short
+        }
+        long offset = log.length();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(recordSize(username));
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeUTF(username);
+        out.writeInt(iterations);
+        out.write(salt);
+        out.write(hash);
+        log.seek(offset);
+        log.write(buffer.toByteArray());
+        log.getFD().sync(); // The account exists once the log has it, the index can be rebuilt
+
+        insert(index, capacity, username.hashCode(), offset);
+        count++;
+        coveredLength = log.length();
+        writeHeader(index, capacity, count, coveredLength);
+    }
+
+    // Picks up accounts another process registered, or repairs an index that fell behind the log
+    private void catchUp() {
+        try {
+            if (log.length() == coveredLength) {
+                return;
+            }
+            openIndex();
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle file read error
+        }
+    }
+
+    private void openIndex() throws IOException {
+        if (index != null) {
+            index.close(); // Another process may have replaced the file
+        }
+        index = new RandomAccessFile(indexFile, "rw");
+        if (index.length() >= INDEX_HEADER_SIZE) {
+            index.seek(0);
+            int magic = index.readInt();
+            capacity = index.readInt();
+            count = index.readInt();
+            coveredLength = index.readLong();
+            if (magic == INDEX_MAGIC && coveredLength == log.length()
+                    && index.length() == INDEX_HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+                return;
+            }
+        }
+        rebuildIndex(MIN_CAPACITY);
+    }
+
+    // Writes a fresh index from a scan of the log and swaps it in
+    private void rebuildIndex(int minCapacity) throws IOException {
+        List<long[]> entries = new ArrayList<>(); // Username hash, log offset
+        long length = log.length();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log.getChannel().position(0))));
+        long position = 0;
+        while (position < length) {
+            Record record;
+            try {
+                record = new Record(in);
+            } catch (EOFException e) {
+                log.setLength(position); // Torn record from an interrupted write
+                length = position;
+                break;
+            }
+            entries.add(new long[] {record.username.hashCode(), position});
+            position += recordSize(record.username);
+        }
+
+        int newCapacity = Math.max(MIN_CAPACITY, minCapacity);
+        while (entries.size() * 2 >= newCapacity) {
+            newCapacity *= 2;
+        }
+        File temp = new File(indexFile.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            out.setLength(0);
+            out.setLength(INDEX_HEADER_SIZE + (long) newCapacity * SLOT_SIZE); // Zero-filled, all slots empty
+            for (long[] entry : entries) {
+                insert(out, newCapacity, (int) entry[0], entry[1]);
+            }
+            writeHeader(out, newCapacity, entries.size(), length);
+        }
+        if (index != null) {
+            index.close();
+        }
+        Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        index = new RandomAccessFile(indexFile, "rw");
+        capacity = newCapacity;
+        count = entries.size();
+        coveredLength = length;
+    }
+
+    private static void insert(RandomAccessFile file, int capacity, int hash, long offset) throws IOException {
+        for (int probe = 0; ; probe++) {
+            long slot = slotPosition((spread(hash) + probe) & (capacity - 1));
+            file.seek(slot + 4);
+            if (file.readLong() == 0) {
+                file.seek(slot);
+                file.writeInt(hash);
+                file.writeLong(offset + 1);
+                return;
+            }
+        }
+    }
+
+    private static void writeHeader(RandomAccessFile file, int capacity, int count, long coveredLength) throws IOException {
+        file.seek(0);
+        file.writeInt(INDEX_MAGIC);
+        file.writeInt(capacity);
+        file.writeInt(count);
+        file.writeLong(coveredLength);
+    }
+
+    // One-time move of the plain-text users.txt into the hashed log. Hashing every account is slow,
+    // so the registry is opened before any window. The plain-text file is erased once the log and
+    // index holding the hashes are on disk
+    private void migrateLegacyUsers(File legacyFile) throws IOException {
+        if (!legacyFile.exists()) {
+            return; // No one has registered yet
+        }
+        Map<String, String> legacy = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(legacyFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length == 2) {
+                    legacy.put(parts[0], parts[1]);
+                }
+            }
+        }
+        capacity = MIN_CAPACITY;
+        index = null;
+        rebuildIndex(legacy.size() * 2);
+        for (Map.Entry<String, String> entry : legacy.entrySet()) {
+            byte[] salt = new byte[SALT_BYTES];
+            random.nextBytes(salt);
+            append(entry.getKey(), HASH_ITERATIONS, salt, hash(entry.getValue(), salt, HASH_ITERATIONS));
+        }
+        log.getFD().sync();
+        index.getFD().sync();
+        erase(legacyFile);
+    }
+
+    // Overwrites a file of plain-text passwords with zeros, then deletes it. Best effort: a journaling
+    // file system or an SSD may keep old blocks, but no readable copy stays beside the log
+    private static void erase(File file) {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            byte[] zeros = new byte[8192];
+            long length = out.length();
+            for (long written = 0; written < length; written += zeros.length) {
+                out.write(zeros, 0, (int) Math.min(zeros.length, length - written));
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle overwrite error, still try to delete it
+        }
+        if (!file.delete()) {
+            System.err.println("Could not delete " + file + ", it holds plain-text passwords");
+        }
+    }
+
+    private static byte[] hash(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BYTES * 8);
+        try {
+            return SecretKeyFactory.getInstance(HASH_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    // Only compared against in-memory entries, never stored
+    private static byte[] fastDigest(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int recordSize(String username) throws UTFDataFormatException {
+        int utfLength = 0;
+        for (int i = 0; i < username.length(); i++) {
+            char c = username.charAt(i);
+            utfLength += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2; // Modified UTF-8, as writeUTF
+        }
+        if (utfLength > 65535) {
+            throw new UTFDataFormatException("Username too long");
+        }
+        return 2 + utfLength + 4 + SALT_BYTES + HASH_BYTES;
+    }
+
+    private static long slotPosition(int slot) {
+        return INDEX_HEADER_SIZE + (long) slot * SLOT_SIZE;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
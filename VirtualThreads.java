@@ -0,0 +1,29 @@
+import java.util.concurrent.*;
+
+// One thread per task: virtual threads where the running JDK has them (21+), otherwise a cached
+// pool of daemon platform threads. Looked up reflectively so the code still builds on older JDKs.
+public class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    public static ExecutorService newPerTaskExecutor(String fallbackThreadName) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, fallbackThreadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public static boolean isAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import benchmarks.CatalogOperations;
+
+import java.io.*;
+import java.util.*;
+
+// Default-package side of CatalogBenchmark; see CatalogOperations
+public class CatalogFixture implements CatalogOperations {
+    private static final String[] QUERIES = {"silent river", "memory", "harbor iron", "ember"};
+
+    private GeneralDatabase database;
+    private File snapshot;
+    private String[] titles;
+    private CatalogTableModel tableModel;
+
+    @Override
+    public void open(File directory, int books, int reviews, long seed) throws IOException {
+        SyntheticCatalog.writeCatalog(directory, books, seed);
+        database = new GeneralDatabase(directory);
+        Random random = new Random(seed);
+        for (int i = 0; i < reviews; i++) {
+            database.addReviewToGeneralBook(SyntheticCatalog.title(random.nextInt(books)), SyntheticCatalog.review(random));
+        }
+        database.saveToCSV(); // Every benchmark starts from a fresh checkpoint and snapshot
+        snapshot = new File(directory, "general.snapshot");
+
+        titles = new String[1024];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = SyntheticCatalog.title(random.nextInt(books));
+        }
+        tableModel = new CatalogTableModel(database::getBooks, true);
+    }
+
+    @Override
+    public int loadFromCSV() {
+        database.loadFromCSV();
+        return database.getBooks().size();
+    }
+
+    @Override
+    public void deleteSnapshot() {
+        snapshot.delete();
+    }
+
+    @Override
+    public void saveToCSV() {
+        database.saveToCSV();
+    }
+
+    @Override
+    public void updateBookRating(int iteration) {
+        database.updateBookRating(titles[iteration & 1023], 1 + (iteration % RatingStore.STARS));
+    }
+
+    @Override
+    public void addReviewToGeneralBook(int iteration) {
+        database.addReviewToGeneralBook(titles[iteration & 1023], "Benchmark review " + iteration);
+    }
+
+    @Override
+    public Object findByTitle(int iteration) {
+        return database.findByTitle(titles[iteration & 1023]);
+    }
+
+    @Override
+    public int searchAndFilter(int iteration) {
+        Set<GeneralBook> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+        matches.addAll(database.search(QUERIES[iteration & 3]));
+        return tableModel.buildView(matches::contains).size();
+    }
+
+    @Override
+    public int substringFilter(int iteration) {
+        String query = QUERIES[iteration & 3].split(" ")[0];
+        return tableModel.buildView(book -> book.getTitle().toLowerCase(Locale.ROOT).contains(query)).size();
+    }
+}
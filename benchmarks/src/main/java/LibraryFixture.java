@@ -0,0 +1,27 @@
+import benchmarks.LibraryOperations;
+
+import java.io.*;
+
+// Default-package side of PersonalLibraryBenchmark; see LibraryOperations
+public class LibraryFixture implements LibraryOperations {
+    private static final String USERNAME = "bench";
+
+    private PersonalDatabase library;
+
+    @Override
+    public void open(File directory, int books, long seed) throws IOException {
+        SyntheticCatalog.writeLibrary(directory, USERNAME, books, books, seed);
+        library = new PersonalDatabase(directory, USERNAME);
+    }
+
+    @Override
+    public int loadFromFile() {
+        library.loadFromFile();
+        return library.getPersonalBookView().size();
+    }
+
+    @Override
+    public void saveToFile() {
+        library.saveToFile();
+    }
+}
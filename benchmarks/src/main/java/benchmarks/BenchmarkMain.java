@@ -0,0 +1,18 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// The JMH command line with the GC profiler always on, so every result comes with its allocation
+// rate (gc.alloc.rate, gc.alloc.rate.norm) next to the throughput.
+// java -jar benchmarks/target/benchmarks.jar [JMH options, e.g. CatalogBenchmark.findByTitle -p books=1000]
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Persistence, rating, review and search paths of GeneralDatabase on generated catalogs.
+// Run through BenchmarkMain, which adds the GC profiler, so every result also reports allocation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g") // The million-book catalogs need the heap
+public class CatalogBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int books;
+
+    @Param({"0", "10000"})
+    public int reviews;
+
+    private File directory;
+    CatalogOperations catalog;
+    private int iteration;
+
+    // Removes the snapshot before every call, so the load parses the CSV
+    @State(Scope.Thread)
+    public static class SnapshotDeleted {
+        @Setup(Level.Invocation)
+        public void deleteSnapshot(CatalogBenchmark benchmark) {
+            benchmark.catalog.deleteSnapshot();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void openCatalog() throws IOException {
+        directory = Fixtures.createDirectory();
+        catalog = Fixtures.create(CatalogOperations.class, "CatalogFixture");
+        catalog.open(directory, books, reviews, Fixtures.SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCatalog() throws IOException {
+        Fixtures.deleteRecursively(directory.toPath());
+    }
+
+    @Benchmark
+    public int loadFromCSV() {
+        return catalog.loadFromCSV();
+    }
+
+    @Benchmark
+    public int loadFromCSVWithoutSnapshot(SnapshotDeleted snapshotDeleted) {
+        return catalog.loadFromCSV();
+    }
+
+    @Benchmark
+    public void saveToCSV() {
+        catalog.saveToCSV();
+    }
+
+    @Benchmark
+    public void updateBookRating() {
+        catalog.updateBookRating(iteration++);
+    }
+
+    @Benchmark
+    public void addReviewToGeneralBook() {
+        catalog.addReviewToGeneralBook(iteration++);
+    }
+
+    @Benchmark
+    public Object findByTitle() {
+        return catalog.findByTitle(iteration++);
+    }
+
+    @Benchmark
+    public int searchAndFilter() {
+        return catalog.searchAndFilter(iteration++);
+    }
+
+    @Benchmark
+    public int substringFilter() {
+        return catalog.substringFilter(iteration++);
+    }
+}
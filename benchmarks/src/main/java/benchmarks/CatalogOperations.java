@@ -0,0 +1,33 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+// The catalog paths CatalogBenchmark measures, implemented by CatalogFixture. JMH only accepts
+// benchmark classes in a named package, and those cannot see the application's default package,
+// so the benchmarks reach the application through this interface. Results are returned for the
+// Blackhole, so the JIT cannot drop the work that produced them.
+public interface CatalogOperations {
+    // Generates a catalog with the given number of books and reviews and writes a fresh checkpoint
+    void open(File directory, int books, int reviews, long seed) throws IOException;
+
+    // Loads the catalog again and returns the number of books; uses the snapshot if it is current
+    int loadFromCSV();
+
+    // Makes the next load parse the CSV, which also writes the snapshot again
+    void deleteSnapshot();
+
+    void saveToCSV();
+
+    void updateBookRating(int iteration);
+
+    void addReviewToGeneralBook(int iteration);
+
+    Object findByTitle(int iteration);
+
+    // What the catalog window does for a query: index lookup, then the table permutation; returns the rows shown
+    int searchAndFilter(int iteration);
+
+    // Substring filter over every title, as the table applies without the index
+    int substringFilter(int iteration);
+}
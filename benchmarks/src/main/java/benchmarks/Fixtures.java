@@ -0,0 +1,35 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+
+final class Fixtures {
+    static final long SEED = 42; // Same seed, same catalog, so runs can be compared
+
+    private Fixtures() {
+    }
+
+    // Instantiates a default-package fixture by name; the only reflective step, done once per trial
+    static <T> T create(Class<T> type, String className) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing benchmark fixture " + className, e);
+        }
+    }
+
+    // Best effort; files the catalog still holds open may survive on some platforms
+    static void deleteRecursively(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                file.toFile().delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    static File createDirectory() throws IOException {
+        return Files.createTempDirectory("library-bench").toFile();
+    }
+}
@@ -0,0 +1,16 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+// The personal library paths PersonalLibraryBenchmark measures, implemented by LibraryFixture for
+// the same reason as CatalogOperations
+public interface LibraryOperations {
+    // Generates a library with the given number of books and opens it
+    void open(File directory, int books, long seed) throws IOException;
+
+    // Returns the number of books loaded
+    int loadFromFile();
+
+    void saveToFile();
+}
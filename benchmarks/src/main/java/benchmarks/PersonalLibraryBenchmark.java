@@ -0,0 +1,43 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Loading and saving a personal library; libraries are capped well below catalog sizes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class PersonalLibraryBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int books;
+
+    private File directory;
+    private LibraryOperations library;
+
+    @Setup(Level.Trial)
+    public void openLibrary() throws IOException {
+        directory = Fixtures.createDirectory();
+        library = Fixtures.create(LibraryOperations.class, "LibraryFixture");
+        library.open(directory, books, Fixtures.SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLibrary() throws IOException {
+        Fixtures.deleteRecursively(directory.toPath());
+    }
+
+    @Benchmark
+    public int loadFromFile() {
+        return library.loadFromFile();
+    }
+
+    @Benchmark
+    public void saveToFile() {
+        library.saveToFile();
+    }
+}
@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two GeneralDatabase instances on one directory stand in for two processes sharing a catalog
+class CatalogJournalTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void recordsAppendedAfterATornRecordAreReplayed() throws IOException {
+        GeneralDatabase first = new GeneralDatabase(directory);
+        GeneralDatabase second = new GeneralDatabase(directory);
+        second.addBook(new GeneralBook("Zero", "Z")); // Opens the second instance's append stream
+        first.addBook(new GeneralBook("Alpha", "A"));
+
+        // A third process crashed halfway through a record
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(directory, "general.journal"), true))) {
+            out.writeInt(64);
+            out.writeInt(0);
+            out.write(new byte[10]);
+        }
+
+        second.addBook(new GeneralBook("Beta", "B"));
+        first.updateBookRating("Beta", 4);
+        assertNotNull(first.findByTitle("Beta"), "the first instance replays past the torn record");
+        assertEquals(1, first.findByTitle("Beta").getRatingCount());
+
+        GeneralDatabase restarted = new GeneralDatabase(directory);
+        assertNotNull(restarted.findByTitle("Zero"));
+        assertNotNull(restarted.findByTitle("Alpha"));
+        assertNotNull(restarted.findByTitle("Beta"));
+        assertEquals(1, restarted.findByTitle("Beta").getRatingCount());
+    }
+
+    @Test
+    void ownRecordsAreNotReplayedAgain() {
+        GeneralDatabase first = new GeneralDatabase(directory);
+        GeneralDatabase second = new GeneralDatabase(directory);
+        first.addBook(new GeneralBook("Alpha", "A"));
+        first.updateBookRating("Alpha", 5);
+        second.updateBookRating("Alpha", 3);
+        first.updateBookRating("Alpha", 1); // Catches up with the second instance's rating only
+
+        assertEquals(3, first.findByTitle("Alpha").getRatingCount());
+        assertEquals(3, new GeneralDatabase(directory).findByTitle("Alpha").getRatingCount());
+    }
+}
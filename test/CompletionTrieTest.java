@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionTrieTest {
+    // Random adds, removes and re-weights over keys sharing many prefixes, checked against a sort
+    @Test
+    void suggestionsMatchARankingOfAllKeys() {
+        String[] words = {"a", "an", "ant", "anthem", "b", "be", "bee", "beet", "river", "rivers", "riverside", "the river"};
+        CompletionTrie trie = new CompletionTrie();
+        Map<String, long[]> expected = new HashMap<>(); // key -> {weight, references}
+        Random random = new Random(7);
+        for (int step = 0; step < 20_000; step++) {
+            String key = words[random.nextInt(words.length)] + (random.nextBoolean() ? "" : " " + words[random.nextInt(words.length)]);
+            long[] state = expected.get(key);
+            int action = random.nextInt(3);
+            if (action == 0 || state == null) {
+                long weight = random.nextInt(5);
+                trie.add(key, weight);
+                expected.computeIfAbsent(key, k -> new long[2])[0] += weight;
+                expected.get(key)[1]++;
+            } else if (action == 1) {
+                long weight = Math.min(state[0], random.nextInt(3));
+                trie.remove(key, weight);
+                state[0] -= weight;
+                if (--state[1] == 0) {
+                    expected.remove(key);
+                }
+            } else {
+                long delta = random.nextInt(7) - 3;
+                trie.adjustWeight(key, delta);
+                state[0] += delta;
+            }
+            if (step % 97 == 0) {
+                for (String prefix : new String[] {"", "a", "an", "ant", "anthem b", "b", "bee", "r", "river", "rivers", "the", "x"}) {
+                    assertEquals(ranked(expected, prefix), trie.suggest(prefix, CompletionTrie.TOP_K), "prefix '" + prefix + "' at step " + step);
+                }
+            }
+        }
+    }
+
+    @Test
+    void suggestsTheOriginalSpellingForAPrefixEndingInsideAnEdge() {
+        CompletionTrie trie = new CompletionTrie();
+        trie.add("The Silent River", 3);
+        trie.add("The Silent Garden", 5);
+        assertEquals(List.of("The Silent Garden", "The Silent River"), trie.suggest("the sil", 10));
+        assertEquals(List.of("The Silent River"), trie.suggest("THE SILENT R", 10));
+        assertEquals(List.of("The Silent Garden"), trie.suggest("the", 1));
+        trie.remove("The Silent Garden", 5);
+        assertEquals(List.of("The Silent River"), trie.suggest("the silent", 10));
+        assertTrue(trie.suggest("the silent g", 10).isEmpty());
+    }
+
+    private static List<String> ranked(Map<String, long[]> expected, String prefix) {
+        List<String> keys = new ArrayList<>();
+        for (String key : expected.keySet()) {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        keys.sort((a, b) -> expected.get(a)[0] != expected.get(b)[0]
+            ? Long.compare(expected.get(b)[0], expected.get(a)[0]) : a.compareTo(b));
+        return keys.subList(0, Math.min(CompletionTrie.TOP_K, keys.size()));
+    }
+}